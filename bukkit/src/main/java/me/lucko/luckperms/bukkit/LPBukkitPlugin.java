@@ -38,6 +38,7 @@ import me.lucko.luckperms.bukkit.inject.server.InjectorSubscriptionMap;
 import me.lucko.luckperms.bukkit.inject.server.LuckPermsDefaultsMap;
 import me.lucko.luckperms.bukkit.inject.server.LuckPermsPermissionMap;
 import me.lucko.luckperms.bukkit.inject.server.LuckPermsSubscriptionMap;
+import me.lucko.luckperms.bukkit.inject.server.PermissionSubscriptionIndex;
 import me.lucko.luckperms.bukkit.listeners.BukkitAutoOpListener;
 import me.lucko.luckperms.bukkit.listeners.BukkitCommandListUpdater;
 import me.lucko.luckperms.bukkit.listeners.BukkitConnectionListener;
@@ -98,6 +99,7 @@ public class LPBukkitPlugin extends AbstractLuckPermsPlugin {
     private LuckPermsSubscriptionMap subscriptionMap;
     private LuckPermsPermissionMap permissionMap;
     private LuckPermsDefaultsMap defaultPermissionMap;
+    private final PermissionSubscriptionIndex permissionSubscriptionIndex = new PermissionSubscriptionIndex(this);
     private VaultHookManager vaultHookManager = null;
     
     public LPBukkitPlugin(LPBukkitBootstrap bootstrap) {
@@ -451,4 +453,8 @@ public class LPBukkitPlugin extends AbstractLuckPermsPlugin {
         this.defaultPermissionMap = defaultPermissionMap;
     }
 
+    public PermissionSubscriptionIndex getPermissionSubscriptionIndex() {
+        return this.permissionSubscriptionIndex;
+    }
+
 }
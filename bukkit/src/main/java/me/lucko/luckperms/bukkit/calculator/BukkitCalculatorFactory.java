@@ -44,9 +44,11 @@ import net.luckperms.api.query.QueryOptions;
 
 public class BukkitCalculatorFactory implements CalculatorFactory {
     private final LPBukkitPlugin plugin;
+    private final ChildProcessor.SharedChildPermissions sharedChildPermissions;
 
     public BukkitCalculatorFactory(LPBukkitPlugin plugin) {
         this.plugin = plugin;
+        this.sharedChildPermissions = new ChildProcessor.SharedChildPermissions(plugin);
     }
 
     @Override
@@ -56,7 +58,7 @@ public class BukkitCalculatorFactory implements CalculatorFactory {
         processors.add(new MapProcessor());
 
         if (this.plugin.getConfiguration().get(ConfigKeys.APPLY_BUKKIT_CHILD_PERMISSIONS)) {
-            processors.add(new ChildProcessor(this.plugin));
+            processors.add(new ChildProcessor(this.sharedChildPermissions));
         }
 
         if (this.plugin.getConfiguration().get(ConfigKeys.APPLYING_REGEX)) {
@@ -25,7 +25,10 @@
 
 package me.lucko.luckperms.bukkit.calculator;
 
+import com.google.common.collect.ImmutableMap;
+
 import me.lucko.luckperms.bukkit.LPBukkitPlugin;
+import me.lucko.luckperms.common.cache.LoadingMap;
 import me.lucko.luckperms.common.calculator.processor.AbstractPermissionProcessor;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
 import me.lucko.luckperms.common.calculator.result.TristateResult;
@@ -33,8 +36,8 @@ import me.lucko.luckperms.common.calculator.result.TristateResult;
 import net.luckperms.api.util.Tristate;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Permission Processor for Bukkits "child" permission system.
@@ -42,11 +45,14 @@ import java.util.concurrent.ConcurrentHashMap;
 public class ChildProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
     private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(ChildProcessor.class);
 
-    private final LPBukkitPlugin plugin;
-    private Map<String, TristateResult> childPermissions = Collections.emptyMap();
+    private final SharedChildPermissions shared;
+    private volatile Map<String, TristateResult> childPermissions = Collections.emptyMap();
+
+    // the permission map version the child permissions were resolved against
+    private int version = -1;
 
-    public ChildProcessor(LPBukkitPlugin plugin) {
-        this.plugin = plugin;
+    public ChildProcessor(SharedChildPermissions shared) {
+        this.shared = shared;
     }
 
     @Override
@@ -56,18 +62,74 @@ public class ChildProcessor extends AbstractPermissionProcessor implements Permi
 
     @Override
     public void refresh() {
-        Map<String, TristateResult> builder = new ConcurrentHashMap<>();
+        SharedChildPermissions.Generation generation = this.shared.getGeneration();
+
+        Map<String, TristateResult> builder = new HashMap<>();
         for (Map.Entry<String, Boolean> e : this.sourceMap.entrySet()) {
-            Map<String, Boolean> children = this.plugin.getPermissionMap().getChildPermissions(e.getKey(), e.getValue());
-            for (Map.Entry<String, Boolean> child : children.entrySet()) {
-                builder.put(child.getKey(), RESULT_FACTORY.result(Tristate.of(child.getValue()), "parent: " + e.getKey()));
-            }
+            builder.putAll(generation.getChildPermissions(e.getKey(), e.getValue()));
         }
-        this.childPermissions = builder;
+
+        this.childPermissions = builder.isEmpty() ? Collections.emptyMap() : builder;
+        this.version = generation.version;
     }
 
     @Override
     public void invalidate() {
-        refresh();
+        // only re-resolve if the registered child permissions have changed
+        if (this.shared.getGeneration().version != this.version) {
+            refresh();
+        }
+    }
+
+    /**
+     * Holds the resolved child permissions for each (permission, value) pair,
+     * shared between all {@link ChildProcessor}s created by a calculator factory.
+     *
+     * <p>The results are discarded whenever the servers registered permissions change.</p>
+     */
+    public static final class SharedChildPermissions {
+        private final LPBukkitPlugin plugin;
+        private volatile Generation generation = new Generation(-1);
+
+        public SharedChildPermissions(LPBukkitPlugin plugin) {
+            this.plugin = plugin;
+        }
+
+        Generation getGeneration() {
+            int version = this.plugin.getPermissionMap().getVersion();
+            Generation generation = this.generation;
+            if (generation.version != version) {
+                this.generation = generation = new Generation(version);
+            }
+            return generation;
+        }
+
+        final class Generation {
+            private final int version;
+            private final Map<String, Map<String, TristateResult>> trueChildPermissions = LoadingMap.of(key -> resolve(key, true));
+            private final Map<String, Map<String, TristateResult>> falseChildPermissions = LoadingMap.of(key -> resolve(key, false));
+
+            Generation(int version) {
+                this.version = version;
+            }
+
+            Map<String, TristateResult> getChildPermissions(String permission, boolean value) {
+                return value ? this.trueChildPermissions.get(permission) : this.falseChildPermissions.get(permission);
+            }
+
+            private Map<String, TristateResult> resolve(String permission, boolean value) {
+                Map<String, Boolean> children = SharedChildPermissions.this.plugin.getPermissionMap().getChildPermissions(permission, value);
+                if (children.isEmpty()) {
+                    return ImmutableMap.of();
+                }
+
+                String cause = "parent: " + permission;
+                ImmutableMap.Builder<String, TristateResult> builder = ImmutableMap.builder();
+                for (Map.Entry<String, Boolean> child : children.entrySet()) {
+                    builder.put(child.getKey(), RESULT_FACTORY.result(Tristate.of(child.getValue()), cause));
+                }
+                return builder.build();
+            }
+        }
     }
 }
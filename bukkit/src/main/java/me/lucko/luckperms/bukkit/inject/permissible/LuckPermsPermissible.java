@@ -297,6 +297,9 @@ public class LuckPermsPermissible extends PermissibleBase {
         // (#invalidate is a fast call)
         if (this.queryOptionsSupplier != null) { // this method is called by the super class constructor, before this class has fully initialised
             this.queryOptionsSupplier.invalidate();
+
+            // op status is used when indexing permission subscriptions
+            this.plugin.getPermissionSubscriptionIndex().invalidate(this.player);
         }
 
         // but we don't need to do anything else in this method, unlike the CB impl.
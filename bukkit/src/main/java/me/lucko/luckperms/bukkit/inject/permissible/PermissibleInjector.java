@@ -111,6 +111,9 @@ public final class PermissibleInjector {
 
         // inject the new instance
         HUMAN_ENTITY_PERMISSIBLE_FIELD.set(player, newPermissible);
+
+        // start indexing the players permissions for subscription lookups
+        newPermissible.getPlugin().getPermissionSubscriptionIndex().register(newPermissible);
     }
 
     /**
@@ -135,6 +138,9 @@ public final class PermissibleInjector {
             // set to inactive
             lpPermissible.getActive().set(false);
 
+            // stop indexing the players permissions
+            lpPermissible.getPlugin().getPermissionSubscriptionIndex().unregister(player);
+
             // handle the replacement permissible.
             if (dummy) {
                 // just inject a dummy class. this is used when we know the player is about to quit the server.
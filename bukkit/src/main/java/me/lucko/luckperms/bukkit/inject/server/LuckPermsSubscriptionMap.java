@@ -233,8 +233,15 @@ public final class LuckPermsSubscriptionMap extends HashMap<String, Map<Permissi
             }
 
             // add any online players who meet requirements
-            for (Player player : LuckPermsSubscriptionMap.this.plugin.getBootstrap().getServer().getOnlinePlayers()) {
-                if (player.hasPermission(this.permission) || player.isPermissionSet(this.permission)) {
+            // the index narrows down the players we need to check, but can't be used
+            // for permissions which could be given to any player by default
+            Collection<? extends Player> candidates = LuckPermsSubscriptionMap.this.plugin.getPermissionSubscriptionIndex().getCandidates(this.permission);
+            if (candidates == null) {
+                candidates = LuckPermsSubscriptionMap.this.plugin.getBootstrap().getServer().getOnlinePlayers();
+            }
+
+            for (Player player : candidates) {
+                if (player.isOnline() && (player.hasPermission(this.permission) || player.isPermissionSet(this.permission))) {
                     set.add(player);
                 }
             }
@@ -0,0 +1,272 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.bukkit.inject.server;
+
+import me.lucko.luckperms.bukkit.LPBukkitPlugin;
+import me.lucko.luckperms.bukkit.inject.permissible.LuckPermsPermissible;
+import me.lucko.luckperms.common.calculator.processor.WildcardProcessor;
+import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.node.AbstractNode;
+import me.lucko.luckperms.common.node.types.RegexPermission;
+import me.lucko.luckperms.common.query.QueryOptionsImpl;
+
+import net.luckperms.api.util.Tristate;
+
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.Permission;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of the permissions held by online players, used by {@link LuckPermsSubscriptionMap}
+ * to work out which players could be subscribed to a permission without checking every
+ * online player.
+ *
+ * <p>Players are indexed using their non-contextual permission data, so the index
+ * over-reports - it includes permissions the player only has in other contexts, or has
+ * set to false. Candidates returned by {@link #getCandidates(String)} must still be
+ * checked against the player.</p>
+ *
+ * <p>A players entry is marked as dirty whenever their cached permission data changes,
+ * and is rebuilt the next time the index is queried.</p>
+ */
+public class PermissionSubscriptionIndex {
+    private final LPBukkitPlugin plugin;
+
+    /**
+     * The players currently being indexed
+     */
+    private final Map<Player, IndexedPlayer> players = new ConcurrentHashMap<>();
+
+    /**
+     * The entries which need to be rebuilt before the index is next queried
+     */
+    private final Set<IndexedPlayer> dirty = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Mapping of permissions to the players which hold them. Guarded by 'this'.
+     */
+    private final Map<String, Set<Player>> index = new HashMap<>();
+
+    /**
+     * The players which have to be checked for every permission (ops & those with regex
+     * permissions). Guarded by 'this'.
+     */
+    private final Set<Player> alwaysCheck = new HashSet<>();
+
+    public PermissionSubscriptionIndex(LPBukkitPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Starts indexing the player the given permissible belongs to.
+     *
+     * @param permissible the permissible
+     */
+    public void register(LuckPermsPermissible permissible) {
+        IndexedPlayer entry = new IndexedPlayer(permissible.getPlayer(), permissible.getUser());
+        IndexedPlayer previous = this.players.put(entry.player, entry);
+        if (previous != null) {
+            remove(previous);
+        }
+
+        entry.user.getCachedData().addPermissionDataListener(entry.listener);
+        this.dirty.add(entry);
+    }
+
+    /**
+     * Stops indexing the given player.
+     *
+     * @param player the player
+     */
+    public void unregister(Player player) {
+        IndexedPlayer entry = this.players.remove(player);
+        if (entry != null) {
+            remove(entry);
+        }
+    }
+
+    /**
+     * Marks the entry for the given player as dirty.
+     *
+     * @param player the player
+     */
+    public void invalidate(Player player) {
+        IndexedPlayer entry = this.players.get(player);
+        if (entry != null) {
+            this.dirty.add(entry);
+        }
+    }
+
+    /**
+     * Gets the players who could be subscribed to the given permission.
+     *
+     * @param permission the permission
+     * @return the candidate players, or null if every online player needs to be checked
+     */
+    public synchronized @Nullable Set<Player> getCandidates(String permission) {
+        permission = permission.toLowerCase();
+
+        // permissions which are given to non-op players by default could apply to anyone
+        if (isDefaultForNonOps(permission)) {
+            return null;
+        }
+
+        // bring the index up to date
+        for (Iterator<IndexedPlayer> it = this.dirty.iterator(); it.hasNext(); ) {
+            IndexedPlayer entry = it.next();
+            it.remove();
+            rebuild(entry);
+        }
+
+        Set<Player> candidates = new HashSet<>(this.alwaysCheck);
+        addPlayersWith(candidates, permission);
+        addPlayersWith(candidates, "*");
+        addPlayersWith(candidates, "'*'");
+
+        // include players who have the permission through a wildcard
+        for (int i = permission.indexOf(AbstractNode.NODE_SEPARATOR); i != -1; i = permission.indexOf(AbstractNode.NODE_SEPARATOR, i + 1)) {
+            if (i == 0) {
+                continue;
+            }
+
+            String prefix = permission.substring(0, i);
+            addPlayersWith(candidates, prefix);
+            addPlayersWith(candidates, prefix + WildcardProcessor.WILDCARD_SUFFIX);
+        }
+
+        return candidates;
+    }
+
+    private void addPlayersWith(Set<Player> candidates, String permission) {
+        Set<Player> players = this.index.get(permission);
+        if (players != null) {
+            candidates.addAll(players);
+        }
+    }
+
+    private boolean isDefaultForNonOps(String permission) {
+        if (!this.plugin.getConfiguration().get(ConfigKeys.APPLY_BUKKIT_DEFAULT_PERMISSIONS)) {
+            return false;
+        }
+
+        LuckPermsDefaultsMap defaultPermissionMap = this.plugin.getDefaultPermissionMap();
+        LuckPermsPermissionMap permissionMap = this.plugin.getPermissionMap();
+        if (defaultPermissionMap == null || permissionMap == null) {
+            return true;
+        }
+
+        if (defaultPermissionMap.lookupDefaultPermission(permission, false) != Tristate.UNDEFINED) {
+            return true;
+        }
+
+        Permission defPerm = permissionMap.get(permission);
+        return defPerm != null && defPerm.getDefault().getValue(false);
+    }
+
+    private synchronized void remove(IndexedPlayer entry) {
+        entry.user.getCachedData().removePermissionDataListener(entry.listener);
+        this.dirty.remove(entry);
+        clear(entry);
+    }
+
+    private void clear(IndexedPlayer entry) {
+        for (String permission : entry.permissions) {
+            Set<Player> players = this.index.get(permission);
+            if (players != null) {
+                players.remove(entry.player);
+                if (players.isEmpty()) {
+                    this.index.remove(permission);
+                }
+            }
+        }
+        entry.permissions = Collections.emptySet();
+
+        if (entry.alwaysCheck) {
+            this.alwaysCheck.remove(entry.player);
+            entry.alwaysCheck = false;
+        }
+    }
+
+    private void rebuild(IndexedPlayer entry) {
+        clear(entry);
+
+        if (this.players.get(entry.player) != entry) {
+            return;
+        }
+
+        boolean applyChildren = this.plugin.getConfiguration().get(ConfigKeys.APPLY_BUKKIT_CHILD_PERMISSIONS);
+        LuckPermsPermissionMap permissionMap = this.plugin.getPermissionMap();
+
+        Map<String, Boolean> source = entry.user.getCachedData().getPermissionData(QueryOptionsImpl.DEFAULT_NON_CONTEXTUAL).getPermissionMap();
+        Set<String> permissions = new HashSet<>(source.keySet());
+        boolean alwaysCheck = entry.player.isOp();
+
+        for (Map.Entry<String, Boolean> e : source.entrySet()) {
+            String key = e.getKey();
+            if (key.startsWith(RegexPermission.MARKER_1) || key.startsWith(RegexPermission.MARKER_2)) {
+                alwaysCheck = true;
+            }
+            if (applyChildren && permissionMap != null) {
+                permissions.addAll(permissionMap.getChildPermissions(key, e.getValue()).keySet());
+            }
+        }
+
+        for (String permission : permissions) {
+            this.index.computeIfAbsent(permission, k -> new HashSet<>()).add(entry.player);
+        }
+        entry.permissions = permissions;
+
+        if (alwaysCheck) {
+            this.alwaysCheck.add(entry.player);
+            entry.alwaysCheck = true;
+        }
+    }
+
+    private final class IndexedPlayer {
+        private final Player player;
+        private final User user;
+        private final Runnable listener = () -> PermissionSubscriptionIndex.this.dirty.add(this);
+
+        // the permissions this player is currently indexed under, guarded by the index
+        private Set<String> permissions = Collections.emptySet();
+        private boolean alwaysCheck = false;
+
+        IndexedPlayer(Player player, User user) {
+            this.player = player;
+            this.user = user;
+        }
+    }
+
+}
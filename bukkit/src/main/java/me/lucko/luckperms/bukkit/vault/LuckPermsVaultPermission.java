@@ -58,6 +58,7 @@ import net.milkbowl.vault.permission.Permission;
 import org.bukkit.entity.Player;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.Collections;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
@@ -437,8 +438,7 @@ public class LuckPermsVaultPermission extends AbstractVaultPermission {
 
             // invalidate caches - they have potentially been affected by
             // this change.
-            this.plugin.getGroupManager().invalidateAllGroupCaches();
-            this.plugin.getUserManager().invalidateAllUserCaches();
+            this.plugin.getInheritanceGraphFactory().getDependencyIndex().invalidateDependents(Collections.singleton(g.getName()));
 
             // we don't need to join this call - the save operation
             // can happen in the background.
@@ -0,0 +1,190 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.actionlog;
+
+import net.luckperms.api.actionlog.Action;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * A filter which selects a subset of the entries in the action log.
+ *
+ * <p>Filters are described in terms of the fields they match against so that
+ * storage implementations can translate them into (indexed) queries, rather
+ * than loading the whole log and testing each entry.</p>
+ */
+public final class ActionFilter implements Predicate<LoggedAction> {
+    private static final ActionFilter ALL = new ActionFilter(Type.ALL, null, null);
+
+    /**
+     * Gets a filter which matches all entries.
+     *
+     * @return the filter
+     */
+    public static ActionFilter all() {
+        return ALL;
+    }
+
+    /**
+     * Gets a filter which matches entries performed by the given actor.
+     *
+     * @param uniqueId the unique id of the actor
+     * @return the filter
+     */
+    public static ActionFilter source(UUID uniqueId) {
+        return new ActionFilter(Type.SOURCE, Objects.requireNonNull(uniqueId, "uniqueId"), null);
+    }
+
+    /**
+     * Gets a filter which matches entries acting on the given user.
+     *
+     * @param uniqueId the unique id of the user
+     * @return the filter
+     */
+    public static ActionFilter user(UUID uniqueId) {
+        return new ActionFilter(Type.USER, Objects.requireNonNull(uniqueId, "uniqueId"), null);
+    }
+
+    /**
+     * Gets a filter which matches entries acting on the given group.
+     *
+     * @param name the name of the group
+     * @return the filter
+     */
+    public static ActionFilter group(String name) {
+        return new ActionFilter(Type.GROUP, null, Objects.requireNonNull(name, "name"));
+    }
+
+    /**
+     * Gets a filter which matches entries acting on the given track.
+     *
+     * @param name the name of the track
+     * @return the filter
+     */
+    public static ActionFilter track(String name) {
+        return new ActionFilter(Type.TRACK, null, Objects.requireNonNull(name, "name"));
+    }
+
+    /**
+     * Gets a filter which matches entries where the actor name, acted name or
+     * description contain the given query (case insensitive).
+     *
+     * @param query the search query
+     * @return the filter
+     */
+    public static ActionFilter search(String query) {
+        return new ActionFilter(Type.SEARCH, null, Objects.requireNonNull(query, "query"));
+    }
+
+    private final Type type;
+    private final UUID uniqueId;
+    private final String value;
+
+    private ActionFilter(Type type, UUID uniqueId, String value) {
+        this.type = type;
+        this.uniqueId = uniqueId;
+        this.value = value;
+    }
+
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     * Gets the unique id this filter matches against, for {@link Type#SOURCE}
+     * and {@link Type#USER} filters.
+     *
+     * @return the unique id
+     */
+    public UUID getUniqueId() {
+        return this.uniqueId;
+    }
+
+    /**
+     * Gets the name or query this filter matches against, for
+     * {@link Type#GROUP}, {@link Type#TRACK} and {@link Type#SEARCH} filters.
+     *
+     * @return the value
+     */
+    public String getValue() {
+        return this.value;
+    }
+
+    @Override
+    public boolean test(LoggedAction entry) {
+        switch (this.type) {
+            case ALL:
+                return true;
+            case SOURCE:
+                return entry.getSource().getUniqueId().equals(this.uniqueId);
+            case USER:
+                return entry.getTarget().getType() == Action.Target.Type.USER &&
+                        entry.getTarget().getUniqueId().isPresent() &&
+                        entry.getTarget().getUniqueId().get().equals(this.uniqueId);
+            case GROUP:
+                return entry.getTarget().getType() == Action.Target.Type.GROUP &&
+                        entry.getTarget().getName().equals(this.value);
+            case TRACK:
+                return entry.getTarget().getType() == Action.Target.Type.TRACK &&
+                        entry.getTarget().getName().equals(this.value);
+            case SEARCH:
+                return entry.matchesSearch(this.value);
+            default:
+                throw new AssertionError(this.type);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ActionFilter(type=" + this.type + ", uniqueId=" + this.uniqueId + ", value=" + this.value + ")";
+    }
+
+    public enum Type {
+        ALL, SOURCE, USER, GROUP, TRACK, SEARCH;
+
+        /**
+         * Gets the type of target entries matched by this filter type must have,
+         * or null if the filter doesn't constrain the target type.
+         *
+         * @return the target type
+         */
+        public Action.Target.Type getTargetType() {
+            switch (this) {
+                case USER:
+                    return Action.Target.Type.USER;
+                case GROUP:
+                    return Action.Target.Type.GROUP;
+                case TRACK:
+                    return Action.Target.Type.TRACK;
+                default:
+                    return null;
+            }
+        }
+    }
+
+}
@@ -30,8 +30,6 @@ import com.google.common.collect.ImmutableSortedSet;
 
 import me.lucko.luckperms.common.util.ImmutableCollectors;
 
-import net.luckperms.api.actionlog.Action;
-
 import java.util.ArrayList;
 import java.util.List;
 import java.util.SortedSet;
@@ -58,37 +56,37 @@ public class Log {
         return this.content;
     }
 
-    public SortedSet<LoggedAction> getContent(UUID actor) {
+    public SortedSet<LoggedAction> getContent(ActionFilter filter) {
+        if (filter.getType() == ActionFilter.Type.ALL) {
+            return this.content;
+        }
         return this.content.stream()
-                .filter(e -> e.getSource().getUniqueId().equals(actor))
+                .filter(filter)
                 .collect(ImmutableCollectors.toSortedSet());
     }
 
+    public LogPage getPage(ActionFilter filter, int pageNumber, int pageSize) {
+        return LogPage.of(ImmutableList.copyOf(getContent(filter)), pageNumber, pageSize);
+    }
+
+    public SortedSet<LoggedAction> getContent(UUID actor) {
+        return getContent(ActionFilter.source(actor));
+    }
+
     public SortedSet<LoggedAction> getUserHistory(UUID uniqueId) {
-        return this.content.stream()
-                .filter(e -> e.getTarget().getType() == Action.Target.Type.USER)
-                .filter(e -> e.getTarget().getUniqueId().isPresent() && e.getTarget().getUniqueId().get().equals(uniqueId))
-                .collect(ImmutableCollectors.toSortedSet());
+        return getContent(ActionFilter.user(uniqueId));
     }
 
     public SortedSet<LoggedAction> getGroupHistory(String name) {
-        return this.content.stream()
-                .filter(e -> e.getTarget().getType() == Action.Target.Type.GROUP)
-                .filter(e -> e.getTarget().getName().equals(name))
-                .collect(ImmutableCollectors.toSortedSet());
+        return getContent(ActionFilter.group(name));
     }
 
     public SortedSet<LoggedAction> getTrackHistory(String name) {
-        return this.content.stream()
-                .filter(e -> e.getTarget().getType() == Action.Target.Type.TRACK)
-                .filter(e -> e.getTarget().getName().equals(name))
-                .collect(ImmutableCollectors.toSortedSet());
+        return getContent(ActionFilter.track(name));
     }
 
     public SortedSet<LoggedAction> getSearch(String query) {
-        return this.content.stream()
-                .filter(e -> e.matchesSearch(query))
-                .collect(ImmutableCollectors.toSortedSet());
+        return getContent(ActionFilter.search(query));
     }
 
     public static class Builder {
@@ -0,0 +1,162 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.actionlog;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import me.lucko.luckperms.common.util.Paginated;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A single page of entries from the action log.
+ *
+ * <p>Pages are numbered from the oldest entries (page 1) to the most recent,
+ * and entries are numbered by their position in the filtered log.</p>
+ */
+public final class LogPage {
+
+    /**
+     * Page number which can be passed to request the most recent page.
+     */
+    public static final int LAST_PAGE = Integer.MIN_VALUE;
+
+    /**
+     * Creates a page from content which is already loaded in memory.
+     *
+     * @param content the (filtered) content, sorted from oldest to newest
+     * @param pageNumber the page number to return
+     * @param pageSize the number of entries per page
+     * @return the page
+     */
+    public static LogPage of(List<LoggedAction> content, int pageNumber, int pageSize) {
+        return create(pageNumber, pageSize, content.size(), (offset, limit) -> {
+            int end = content.size() - offset;
+            return Lists.reverse(content.subList(end - limit, end));
+        });
+    }
+
+    /**
+     * Creates a page by querying the given range of the log.
+     *
+     * <p>The range is requested relative to the most recent entry, so that
+     * the common case (viewing the most recent page) only needs to read the
+     * head of an index ordered by time.</p>
+     *
+     * @param pageNumber the page number to return
+     * @param pageSize the number of entries per page
+     * @param totalEntries the total number of entries matching the query
+     * @param query the query used to read a range of entries
+     * @param <E> the type of exception thrown by the query
+     * @return the page
+     * @throws E if the query throws an exception
+     */
+    public static <E extends Exception> LogPage create(int pageNumber, int pageSize, int totalEntries, RangeQuery<E> query) throws E {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize cannot be less than 1: " + pageSize);
+        }
+
+        int maxPages = (totalEntries + pageSize - 1) / pageSize;
+        if (pageNumber == LAST_PAGE) {
+            pageNumber = maxPages;
+        }
+
+        if (pageNumber < 1 || pageNumber > maxPages) {
+            return new LogPage(ImmutableList.of(), pageNumber, maxPages, totalEntries);
+        }
+
+        int first = (pageNumber - 1) * pageSize;
+        int last = Math.min(totalEntries, first + pageSize) - 1;
+
+        // the query returns entries newest first, so flip the range around
+        List<LoggedAction> results = query.query(totalEntries - 1 - last, last - first + 1);
+
+        List<Paginated.Entry<LoggedAction>> entries = new ArrayList<>(results.size());
+        int position = first + results.size();
+        for (LoggedAction action : results) {
+            entries.add(new Paginated.Entry<>(position--, action));
+        }
+
+        return new LogPage(Lists.reverse(entries), pageNumber, maxPages, totalEntries);
+    }
+
+    private final List<Paginated.Entry<LoggedAction>> entries;
+    private final int pageNumber;
+    private final int maxPages;
+    private final int totalEntries;
+
+    private LogPage(List<Paginated.Entry<LoggedAction>> entries, int pageNumber, int maxPages, int totalEntries) {
+        this.entries = ImmutableList.copyOf(entries);
+        this.pageNumber = pageNumber;
+        this.maxPages = maxPages;
+        this.totalEntries = totalEntries;
+    }
+
+    /**
+     * Gets the entries on this page, sorted from oldest to newest.
+     *
+     * <p>Will be empty if the requested page is out of range.</p>
+     *
+     * @return the entries
+     */
+    public List<Paginated.Entry<LoggedAction>> getEntries() {
+        return this.entries;
+    }
+
+    public int getPageNumber() {
+        return this.pageNumber;
+    }
+
+    public int getMaxPages() {
+        return this.maxPages;
+    }
+
+    public int getTotalEntries() {
+        return this.totalEntries;
+    }
+
+    /**
+     * Reads a range of the action log.
+     *
+     * @param <E> the type of exception thrown by the query
+     */
+    @FunctionalInterface
+    public interface RangeQuery<E extends Exception> {
+
+        /**
+         * Reads a range of the log, sorted from newest to oldest.
+         *
+         * @param offset the number of (most recent) entries to skip
+         * @param limit the maximum number of entries to return
+         * @return the entries
+         * @throws E if an exception occurs
+         */
+        List<LoggedAction> query(int offset, int limit) throws E;
+    }
+
+}
@@ -35,6 +35,7 @@ import net.luckperms.api.query.QueryOptions;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.Collections;
 import java.util.Objects;
 import java.util.OptionalInt;
 
@@ -86,8 +87,7 @@ public class ApiGroup extends ApiPermissionHolder implements net.luckperms.api.m
     protected void onNodeChange() {
         // invalidate caches - they have potentially been affected by
         // this change.
-        this.handle.getPlugin().getGroupManager().invalidateAllGroupCaches();
-        this.handle.getPlugin().getUserManager().invalidateAllUserCaches();
+        this.handle.getPlugin().getInheritanceGraphFactory().getDependencyIndex().invalidateDependents(Collections.singleton(this.handle.getName()));
     }
 
     @Override
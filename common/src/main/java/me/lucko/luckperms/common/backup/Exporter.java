@@ -25,7 +25,9 @@
 
 package me.lucko.luckperms.common.backup;
 
+import com.google.common.collect.Maps;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 
 import me.lucko.luckperms.common.http.AbstractHttpClient;
 import me.lucko.luckperms.common.http.UnsuccessfulRequestException;
@@ -38,6 +40,7 @@ import me.lucko.luckperms.common.node.utils.NodeJsonSerializer;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 import me.lucko.luckperms.common.storage.Storage;
+import me.lucko.luckperms.common.util.Iterators;
 import me.lucko.luckperms.common.util.ProgressLogger;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 import me.lucko.luckperms.common.util.gson.JArray;
@@ -46,38 +49,44 @@ import me.lucko.luckperms.common.util.gson.JObject;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
-import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
-import java.util.HashSet;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
 /**
  * Handles export operations
+ *
+ * <p>The output is written incrementally, so only a bounded number of users
+ * are held in memory at any one time.</p>
  */
 public abstract class Exporter implements Runnable {
     private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss z");
 
+    /** The number of users to load from storage at once */
+    private static final int USER_BATCH_SIZE = 500;
+
+    /** The maximum number of user batches to load and serialize concurrently */
+    private static final int MAX_CONCURRENT_BATCHES = 4;
+
     protected final LuckPermsPlugin plugin;
     private final Sender executor;
     private final boolean includeUsers;
@@ -97,29 +106,57 @@ public abstract class Exporter implements Runnable {
 
     @Override
     public void run() {
-        JsonObject json = new JsonObject();
-        json.add("metadata", new JObject()
-                .add("generatedBy", this.executor.getNameWithLocation())
-                .add("generatedAt", DATE_FORMAT.format(new Date(System.currentTimeMillis())))
-                .toJson());
-
-        if (this.includeGroups) {
-            this.log.log("Gathering group data...");
-            json.add("groups", exportGroups());
-
-            this.log.log("Gathering track data...");
-            json.add("tracks", exportTracks());
-        }
-
-        if (this.includeUsers) {
-            this.log.log("Gathering user data...");
-            json.add("users", exportUsers());
+        try (OutputStream out = openOutputStream()) {
+            try (JsonWriter writer = GsonProvider.prettyPrinting().newJsonWriter(new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(out), StandardCharsets.UTF_8)))) {
+                writer.beginObject();
+
+                writer.name("metadata");
+                GsonProvider.prettyPrinting().toJson(new JObject()
+                        .add("generatedBy", this.executor.getNameWithLocation())
+                        .add("generatedAt", DATE_FORMAT.format(new Date(System.currentTimeMillis())))
+                        .toJson(), writer);
+
+                if (this.includeGroups) {
+                    this.log.log("Gathering group data...");
+                    writer.name("groups");
+                    GsonProvider.prettyPrinting().toJson(exportGroups(), writer);
+
+                    this.log.log("Gathering track data...");
+                    writer.name("tracks");
+                    GsonProvider.prettyPrinting().toJson(exportTracks(), writer);
+                }
+
+                if (this.includeUsers) {
+                    this.log.log("Gathering user data...");
+                    writer.name("users");
+                    writer.beginObject();
+                    exportUsers(writer);
+                    writer.endObject();
+                }
+
+                writer.endObject();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            this.log.logError("Unable to write export data: " + e.getMessage());
+            return;
         }
 
-        processOutput(json);
+        processOutput();
     }
 
-    protected abstract void processOutput(JsonObject json);
+    /**
+     * Opens the stream which the (compressed) output should be written to.
+     *
+     * @return the output stream
+     * @throws IOException if an exception occurs
+     */
+    protected abstract OutputStream openOutputStream() throws IOException;
+
+    /**
+     * Called once the output has been fully written.
+     */
+    protected abstract void processOutput();
 
     private JsonObject exportGroups() {
         JsonObject out = new JsonObject();
@@ -151,73 +188,76 @@ public abstract class Exporter implements Runnable {
         return out;
     }
 
-    private JsonObject exportUsers() {
-        // Users are migrated in separate threads.
-        // This is because there are likely to be a lot of them, and because we can.
-        // It's a big speed improvement, since the database/files are split up and can handle concurrent reads.
+    private void exportUsers(JsonWriter writer) throws IOException {
+        // Users are loaded from storage in batches, and a few batches are loaded & serialized concurrently.
+        // Each batch is written (in order) as soon as it completes, and then released, so memory usage
+        // doesn't grow with the number of users being exported.
 
         this.log.log("Finding a list of unique users to export.");
 
         // Find all of the unique users we need to export
         Storage ds = this.plugin.getStorage();
-        Set<UUID> users = ds.getUniqueUsers().join();
+        List<UUID> users = new ArrayList<>(ds.getUniqueUsers().join());
+        users.sort(Comparator.naturalOrder());
         this.log.log("Found " + users.size() + " unique users to export.");
 
-        // create a threadpool to process the users concurrently
-        ExecutorService executor = Executors.newFixedThreadPool(32);
-
-        // A set of futures, which are really just the processes we need to wait for.
-        Set<CompletableFuture<Void>> futures = new HashSet<>();
-
-        AtomicInteger userCount = new AtomicInteger(0);
-        Map<UUID, JsonObject> out = Collections.synchronizedMap(new TreeMap<>());
-
-        // iterate through each user.
-        for (UUID uuid : users) {
-            // register a task for the user, and schedule it's execution with the pool
-            futures.add(CompletableFuture.runAsync(() -> {
-                User user = this.plugin.getStorage().loadUser(uuid, null).join();
-                out.put(user.getUniqueId(), new JObject()
-                        .consume(obj -> {
-                            user.getUsername().ifPresent(username -> obj.add("username", username));
-                            if (!user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME).equalsIgnoreCase(GroupManager.DEFAULT_GROUP_NAME)) {
-                                obj.add("primaryGroup", user.getPrimaryGroup().getStoredValue().get());
-                            }
-                        })
-                        .add("nodes", NodeJsonSerializer.serializeNodes(user.normalData().asSet()))
-                        .toJson());
-                this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
-                userCount.incrementAndGet();
-            }, executor));
-        }
+        Deque<CompletableFuture<List<Map.Entry<UUID, JsonObject>>>> pending = new ArrayDeque<>();
+        int userCount = 0;
+        long lastProgressTime = System.currentTimeMillis();
 
-        // all of the threads have been scheduled now and are running. we just need to wait for them all to complete
-        CompletableFuture<Void> overallFuture = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+        Iterator<List<UUID>> batches = Iterators.divideIterable(users, USER_BATCH_SIZE).iterator();
+        while (batches.hasNext() || !pending.isEmpty()) {
+            // keep a bounded number of batches in flight
+            while (batches.hasNext() && pending.size() < MAX_CONCURRENT_BATCHES) {
+                List<UUID> batch = batches.next();
+                pending.add(ds.loadUsers(new LinkedHashSet<>(batch)).thenApply(loaded -> serializeUsers(batch, loaded)));
+            }
 
-        while (true) {
+            List<Map.Entry<UUID, JsonObject>> serialized;
             try {
-                overallFuture.get(5, TimeUnit.SECONDS);
-            } catch (InterruptedException | ExecutionException e) {
+                serialized = pending.remove().join();
+            } catch (CompletionException e) {
                 // abnormal error - just break
                 e.printStackTrace();
                 break;
-            } catch (TimeoutException e) {
-                // still executing - send a progress report and continue waiting
-                this.log.logAllProgress("Exported {} users so far.", userCount.get());
-                continue;
             }
 
-            // process is complete
-            break;
+            for (Map.Entry<UUID, JsonObject> entry : serialized) {
+                writer.name(entry.getKey().toString());
+                GsonProvider.prettyPrinting().toJson(entry.getValue(), writer);
+            }
+            userCount += serialized.size();
+
+            long now = System.currentTimeMillis();
+            if (now - lastProgressTime >= TimeUnit.SECONDS.toMillis(5)) {
+                lastProgressTime = now;
+                this.log.logAllProgress("Exported {} users so far.", userCount);
+            }
         }
+    }
 
-        executor.shutdown();
+    private List<Map.Entry<UUID, JsonObject>> serializeUsers(List<UUID> batch, Map<UUID, User> loaded) {
+        List<Map.Entry<UUID, JsonObject>> out = new ArrayList<>(batch.size());
+        for (UUID uuid : batch) {
+            User user = loaded.get(uuid);
+            if (user == null) {
+                continue;
+            }
 
-        JsonObject outJson = new JsonObject();
-        for (Map.Entry<UUID, JsonObject> entry : out.entrySet()) {
-            outJson.add(entry.getKey().toString(), entry.getValue());
+            out.add(Maps.immutableEntry(uuid, new JObject()
+                    .consume(obj -> {
+                        user.getUsername().ifPresent(username -> obj.add("username", username));
+                        if (!user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME).equalsIgnoreCase(GroupManager.DEFAULT_GROUP_NAME)) {
+                            obj.add("primaryGroup", user.getPrimaryGroup().getStoredValue().get());
+                        }
+                    })
+                    .add("nodes", NodeJsonSerializer.serializeNodes(user.normalData().asSet()))
+                    .toJson()));
+
+            // don't keep exported users loaded
+            this.plugin.getUserManager().getHouseKeeper().cleanup(uuid);
         }
-        return outJson;
+        return out;
     }
 
     public static final class SaveFile extends Exporter {
@@ -229,21 +269,19 @@ public abstract class Exporter implements Runnable {
         }
 
         @Override
-        protected void processOutput(JsonObject json) {
-            this.log.log("Finished gathering data, writing file...");
-
-            try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(this.filePath)), StandardCharsets.UTF_8))) {
-                GsonProvider.prettyPrinting().toJson(json, out);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        protected OutputStream openOutputStream() throws IOException {
+            return Files.newOutputStream(this.filePath);
+        }
 
+        @Override
+        protected void processOutput() {
             this.log.getListeners().forEach(l -> Message.LOG_EXPORT_SUCCESS.send(l, this.filePath.toFile().getAbsolutePath()));
         }
     }
 
     public static final class WebUpload extends Exporter {
         private final String label;
+        private final ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
 
         public WebUpload(LuckPermsPlugin plugin, Sender executor, boolean includeUsers, boolean includeGroups, String label) {
             super(plugin, executor, includeUsers, includeGroups);
@@ -251,18 +289,16 @@ public abstract class Exporter implements Runnable {
         }
 
         @Override
-        protected void processOutput(JsonObject json) {
-            this.log.log("Finished gathering data, uploading data...");
+        protected OutputStream openOutputStream() {
+            return this.bytesOut;
+        }
 
-            ByteArrayOutputStream bytesOut = new ByteArrayOutputStream();
-            try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytesOut), StandardCharsets.UTF_8)) {
-                GsonProvider.prettyPrinting().toJson(json, writer);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+        @Override
+        protected void processOutput() {
+            this.log.log("Finished gathering data, uploading data...");
 
             try {
-                String pasteId = this.plugin.getBytebin().postContent(bytesOut.toByteArray(), AbstractHttpClient.JSON_TYPE, false).key();
+                String pasteId = this.plugin.getBytebin().postContent(this.bytesOut.toByteArray(), AbstractHttpClient.JSON_TYPE, false).key();
                 this.log.getListeners().forEach(l -> Message.EXPORT_CODE.send(l, pasteId, this.label, pasteId));
             } catch (UnsuccessfulRequestException e) {
                 this.log.getListeners().forEach(l -> Message.EXPORT_HTTP_REQUEST_FAILURE.send(l, e.getResponse().code(), e.getResponse().message()));
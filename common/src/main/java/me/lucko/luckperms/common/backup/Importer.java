@@ -30,6 +30,7 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
 
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.model.Group;
@@ -38,38 +39,58 @@ import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.utils.NodeJsonSerializer;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.util.gson.GsonProvider;
 
 import net.luckperms.api.event.cause.CreationCause;
 import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Handles import operations
  */
 public class Importer implements Runnable {
 
+    /** The maximum number of entries which can be read ahead of the entries being imported */
+    private static final int MAX_PENDING_ENTRIES = 1000;
+
     private final LuckPermsPlugin plugin;
     private final Set<Sender> notify;
-    private final JsonObject data;
+    private final DataSource source;
     private final boolean merge;
 
+    private final AtomicInteger processedCount = new AtomicInteger(0);
+    private final AtomicInteger errorCount = new AtomicInteger(0);
+    private final Semaphore pending = new Semaphore(MAX_PENDING_ENTRIES);
+    private int total = 0;
+
     public Importer(LuckPermsPlugin plugin, Sender executor, JsonObject data, boolean merge) {
+        this(plugin, executor, new TreeDataSource(data), merge);
+    }
+
+    public Importer(LuckPermsPlugin plugin, Sender executor, Path file, boolean merge) {
+        this(plugin, executor, new StreamingDataSource(file), merge);
+    }
+
+    private Importer(LuckPermsPlugin plugin, Sender executor, DataSource source, boolean merge) {
         this.plugin = plugin;
 
         if (executor.isConsole()) {
@@ -77,7 +98,7 @@ public class Importer implements Runnable {
         } else {
             this.notify = ImmutableSet.of(executor, plugin.getConsoleSender());
         }
-        this.data = data;
+        this.source = source;
         this.merge = merge;
     }
 
@@ -100,7 +121,7 @@ public class Importer implements Runnable {
         } else {
             group.setNodes(DataType.NORMAL, nodes);
         }
-        this.plugin.getStorage().saveGroup(group);
+        this.plugin.getStorage().saveGroup(group).join();
     }
 
     private void processTrack(String trackName, List<String> groups) {
@@ -123,126 +144,272 @@ public class Importer implements Runnable {
         this.plugin.getUserManager().getHouseKeeper().cleanup(user.getUniqueId());
     }
 
-    private Set<Map.Entry<String, JsonElement>> getDataSection(String id) {
-        if (this.data.has(id)) {
-            return this.data.get(id).getAsJsonObject().entrySet();
-        } else {
-            return Collections.emptySet();
-        }
+    private static Set<Node> parseGroup(JsonObject data) {
+        return NodeJsonSerializer.deserializeNodes(data.get("nodes").getAsJsonArray());
     }
 
-    @Override
-    public void run() {
-        long startTime = System.currentTimeMillis();
-        this.notify.forEach(s -> Message.IMPORT_START.send(s));
+    private static List<String> parseTrack(JsonObject data) {
+        JsonArray trackGroups = data.get("groups").getAsJsonArray();
+        List<String> trackGroupsList = new ArrayList<>();
+        trackGroups.forEach(g -> trackGroupsList.add(g.getAsString()));
+        return trackGroupsList;
+    }
 
-        // start an update task in the background - we'll #join this later
-        CompletableFuture<Void> updateTask = CompletableFuture.runAsync(() -> this.plugin.getSyncTaskBuffer().requestDirectly());
+    private static UserData parseUser(JsonObject data) {
+        String username = null;
+        String primaryGroup = null;
+        Set<Node> nodes = NodeJsonSerializer.deserializeNodes(data.get("nodes").getAsJsonArray());
 
-        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Reading data..."));
+        if (data.has("username")) {
+            username = data.get("username").getAsString();
+        }
+        if (data.has("primaryGroup")) {
+            primaryGroup = data.get("primaryGroup").getAsString();
+        }
+
+        return new UserData(username, primaryGroup, nodes);
+    }
 
-        Map<String, Set<Node>> groups = new HashMap<>();
-        Map<String, List<String>> tracks = new HashMap<>();
-        Map<UUID, UserData> users = new HashMap<>();
+    /**
+     * A handler which parses each entry without importing it, used to check
+     * the whole of the data can be read before any of it is applied.
+     */
+    private static final DataHandler VALIDATOR = new DataHandler() {
+        @Override
+        public void group(String name, JsonObject data) {
+            parseGroup(data);
+        }
 
-        for (Map.Entry<String, JsonElement> group : getDataSection("groups")) {
-            groups.put(group.getKey(), NodeJsonSerializer.deserializeNodes(group.getValue().getAsJsonObject().get("nodes").getAsJsonArray()));
+        @Override
+        public void track(String name, JsonObject data) {
+            parseTrack(data);
         }
-        for (Map.Entry<String, JsonElement> track : getDataSection("tracks")) {
-            JsonArray trackGroups = track.getValue().getAsJsonObject().get("groups").getAsJsonArray();
-            List<String> trackGroupsList = new ArrayList<>();
-            trackGroups.forEach(g -> trackGroupsList.add(g.getAsString()));
-            tracks.put(track.getKey(), trackGroupsList);
+
+        @Override
+        public void user(String uuid, JsonObject data) {
+            UUID.fromString(uuid);
+            parseUser(data);
         }
-        for (Map.Entry<String, JsonElement> user : getDataSection("users")) {
-            JsonObject jsonData = user.getValue().getAsJsonObject();
+    };
 
-            UUID uuid = UUID.fromString(user.getKey());
-            String username = null;
-            String primaryGroup = null;
-            Set<Node> nodes = NodeJsonSerializer.deserializeNodes(jsonData.get("nodes").getAsJsonArray());
+    @Override
+    public void run() {
+        long startTime = System.currentTimeMillis();
+        this.notify.forEach(s -> Message.IMPORT_START.send(s));
 
-            if (jsonData.has("username")) {
-                username = jsonData.get("username").getAsString();
-            }
-            if (jsonData.has("primaryGroup")) {
-                primaryGroup = jsonData.get("primaryGroup").getAsString();
-            }
+        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Validating data..."));
 
-            users.put(uuid, new UserData(username, primaryGroup, nodes));
+        // read through all of the data once before importing anything, so that
+        // a truncated or corrupt file doesn't leave the import partially applied
+        try {
+            this.source.read(VALIDATOR);
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            this.notify.forEach(Message.IMPORT_FILE_READ_FAILURE::send);
+            return;
         }
 
         this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Waiting for initial update task to complete..."));
 
-        // join the update task future before scheduling command executions
-        updateTask.join();
+        // run an update task before scheduling any entries
+        this.plugin.getSyncTaskBuffer().requestDirectly();
 
         this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Setting up data processor..."));
 
         // create a threadpool for the processing
         ExecutorService executor = Executors.newFixedThreadPool(16, new ThreadFactoryBuilder().setNameFormat("luckperms-importer-%d").build());
 
-        // A set of futures, which are really just the processes we need to wait for.
-        Set<CompletableFuture<Void>> futures = new HashSet<>();
-
-        int total = 0;
-        AtomicInteger processedCount = new AtomicInteger(0);
+        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "Reading data..."));
 
-        for (Map.Entry<String, Set<Node>> group : groups.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(group).thenAcceptAsync(ent -> {
-                processGroup(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
-        }
-        for (Map.Entry<String, List<String>> track : tracks.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(track).thenAcceptAsync(ent -> {
-                processTrack(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
+        // entries are scheduled as they are read. reading blocks once MAX_PENDING_ENTRIES are
+        // waiting to be imported, so only a bounded amount of the data is held in memory.
+        try {
+            this.source.read(new DataHandler() {
+                @Override
+                public void group(String name, JsonObject data) {
+                    Set<Node> nodes = parseGroup(data);
+                    schedule(executor, () -> processGroup(name, nodes));
+                }
+
+                @Override
+                public void track(String name, JsonObject data) {
+                    List<String> groups = parseTrack(data);
+                    schedule(executor, () -> processTrack(name, groups));
+                }
+
+                @Override
+                public void user(String uuid, JsonObject data) {
+                    UUID uniqueId = UUID.fromString(uuid);
+                    UserData userData = parseUser(data);
+                    schedule(executor, () -> processUser(uniqueId, userData));
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            this.errorCount.incrementAndGet();
+            this.notify.forEach(Message.IMPORT_FILE_READ_FAILURE::send);
         }
-        for (Map.Entry<UUID, UserData> user : users.entrySet()) {
-            futures.add(CompletableFuture.completedFuture(user).thenAcceptAsync(ent -> {
-                processUser(ent.getKey(), ent.getValue());
-                processedCount.incrementAndGet();
-            }, executor));
-            total++;
+
+        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "All data entries have been processed and scheduled for import - now waiting for the execution to complete."));
+
+        // wait for all of the scheduled entries to complete
+        awaitPermits(MAX_PENDING_ENTRIES);
+        executor.shutdown();
+
+        long endTime = System.currentTimeMillis();
+        double seconds = (endTime - startTime) / 1000.0;
+
+        int errors = this.errorCount.get();
+        if (errors == 0) {
+            this.notify.forEach(s -> Message.IMPORT_END_COMPLETE.send(s, seconds));
+        } else if (errors == 1) {
+            this.notify.forEach(s -> Message.IMPORT_END_COMPLETE_ERR_SIN.send(s, seconds, errors));
+        } else {
+            this.notify.forEach(s -> Message.IMPORT_END_COMPLETE_ERR.send(s, seconds, errors));
         }
+    }
 
-        // all of the threads have been scheduled now and are running. we just need to wait for them all to complete
-        CompletableFuture<Void> overallFuture = CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+    private void schedule(ExecutorService executor, Runnable task) {
+        awaitPermits(1);
+        this.total++;
 
-        this.notify.forEach(s -> Message.IMPORT_INFO.send(s, "All data entries have been processed and scheduled for import - now waiting for the execution to complete."));
+        CompletableFuture.runAsync(task, executor).whenComplete((v, ex) -> {
+            if (ex != null) {
+                ex.printStackTrace();
+                this.errorCount.incrementAndGet();
+            }
+            this.processedCount.incrementAndGet();
+            this.pending.release();
+        });
+    }
 
+    private void awaitPermits(int permits) {
         while (true) {
             try {
-                overallFuture.get(2, TimeUnit.SECONDS);
-            } catch (InterruptedException | ExecutionException e) {
+                if (this.pending.tryAcquire(permits, 2, TimeUnit.SECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
                 // abnormal error - just break
                 e.printStackTrace();
-                break;
-            } catch (TimeoutException e) {
-                // still executing - send a progress report and continue waiting
-                sendProgress(processedCount.get(), total);
-                continue;
+                return;
             }
 
-            // process is complete
-            break;
+            // still executing - send a progress report and continue waiting
+            sendProgress(this.processedCount.get(), this.total);
         }
+    }
 
-        executor.shutdown();
+    private void sendProgress(int processedCount, int total) {
+        int percent = (processedCount * 100) / total;
+        int errors = this.errorCount.get();
+        if (errors == 1) {
+            this.notify.forEach(s -> Message.IMPORT_PROGRESS_SIN.send(s, percent, processedCount, total, errors));
+        } else {
+            this.notify.forEach(s -> Message.IMPORT_PROGRESS.send(s, percent, processedCount, total, errors));
+        }
+    }
 
-        long endTime = System.currentTimeMillis();
-        double seconds = (endTime - startTime) / 1000.0;
+    /**
+     * Receives the entries read from a {@link DataSource}.
+     */
+    private interface DataHandler {
+        void group(String name, JsonObject data);
 
-        this.notify.forEach(s -> Message.IMPORT_END_COMPLETE.send(s, seconds));
+        void track(String name, JsonObject data);
+
+        void user(String uuid, JsonObject data);
     }
 
-    private void sendProgress(int processedCount, int total) {
-        int percent = (processedCount * 100) / total;
-        this.notify.forEach(s -> Message.IMPORT_PROGRESS.send(s, percent, processedCount, total, 0));
+    /**
+     * A source of data to be imported.
+     */
+    private interface DataSource {
+        void read(DataHandler handler) throws IOException;
+    }
+
+    /**
+     * Reads data which has already been parsed into memory.
+     */
+    private static final class TreeDataSource implements DataSource {
+        private final JsonObject data;
+
+        TreeDataSource(JsonObject data) {
+            this.data = data;
+        }
+
+        private Set<Map.Entry<String, JsonElement>> getDataSection(String id) {
+            if (this.data.has(id)) {
+                return this.data.get(id).getAsJsonObject().entrySet();
+            } else {
+                return ImmutableSet.of();
+            }
+        }
+
+        @Override
+        public void read(DataHandler handler) {
+            for (Map.Entry<String, JsonElement> group : getDataSection("groups")) {
+                handler.group(group.getKey(), group.getValue().getAsJsonObject());
+            }
+            for (Map.Entry<String, JsonElement> track : getDataSection("tracks")) {
+                handler.track(track.getKey(), track.getValue().getAsJsonObject());
+            }
+            for (Map.Entry<String, JsonElement> user : getDataSection("users")) {
+                handler.user(user.getKey(), user.getValue().getAsJsonObject());
+            }
+        }
+    }
+
+    /**
+     * Reads data incrementally from a gzipped export file, one entry at a time.
+     */
+    private static final class StreamingDataSource implements DataSource {
+        private final Path file;
+
+        StreamingDataSource(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public void read(DataHandler handler) throws IOException {
+            try (JsonReader reader = new JsonReader(new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(this.file)), StandardCharsets.UTF_8)))) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    String section = reader.nextName();
+                    switch (section) {
+                        case "groups":
+                            reader.beginObject();
+                            while (reader.hasNext()) {
+                                handler.group(reader.nextName(), readObject(reader));
+                            }
+                            reader.endObject();
+                            break;
+                        case "tracks":
+                            reader.beginObject();
+                            while (reader.hasNext()) {
+                                handler.track(reader.nextName(), readObject(reader));
+                            }
+                            reader.endObject();
+                            break;
+                        case "users":
+                            reader.beginObject();
+                            while (reader.hasNext()) {
+                                handler.user(reader.nextName(), readObject(reader));
+                            }
+                            reader.endObject();
+                            break;
+                        default:
+                            reader.skipValue();
+                            break;
+                    }
+                }
+                reader.endObject();
+            }
+        }
+
+        private static JsonObject readObject(JsonReader reader) {
+            return GsonProvider.normal().fromJson(reader, JsonObject.class);
+        }
     }
 
 }
@@ -0,0 +1,176 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.cache;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * A bounded, read-optimised loading cache with case insensitive string keys.
+ *
+ * <p>Entries are held in a single open-addressing table, with keys and values
+ * interleaved in the same array. Keys are hashed and compared without regard to
+ * case, so lookups never need to create a lowercase copy of the key.</p>
+ *
+ * <p>Reads are lock-free. Writes are serialised, and each write publishes the
+ * value before the key, so a reader which sees a key will always see its value.</p>
+ *
+ * <p>The table is reset once it holds more than the maximum number of entries.
+ * A value which was being computed whilst the cache was {@link #clear() cleared}
+ * is returned to the caller, but not inserted.</p>
+ *
+ * @param <V> the value type
+ */
+public final class CaseInsensitiveLoadingCache<V> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Function<String, V> function;
+    private final int maximumSize;
+
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+
+    /** Incremented each time the cache is cleared, only modified whilst holding the cache lock */
+    private volatile int generation = 0;
+
+    public CaseInsensitiveLoadingCache(Function<String, V> function, int maximumSize) {
+        this.function = function;
+        this.maximumSize = maximumSize;
+    }
+
+    private static int hash(String key) {
+        int h = 0;
+        for (int i = 0, len = key.length(); i < len; i++) {
+            // fold case in the same way as String#equalsIgnoreCase
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(key.charAt(i)));
+        }
+        // spread the higher bits downwards, as the table is indexed by the lower bits
+        return h ^ (h >>> 16);
+    }
+
+    public V getIfPresent(String key) {
+        return this.table.get(key, hash(key));
+    }
+
+    public V get(String key) {
+        int hash = hash(key);
+        V value = this.table.get(key, hash);
+        if (value != null) {
+            return value;
+        }
+
+        // values computed before a concurrent clear may be stale, so they mustn't be inserted
+        int generation = this.generation;
+        value = this.function.apply(key);
+        synchronized (this) {
+            if (this.generation != generation) {
+                return value;
+            }
+
+            Table table = this.table;
+            V existing = table.get(key, hash);
+            if (existing != null) {
+                return existing;
+            }
+
+            if (table.size >= this.maximumSize) {
+                table = new Table(INITIAL_CAPACITY);
+            } else if ((table.size + 1) * 2 > table.capacity) {
+                table = table.resize();
+            }
+
+            table.put(key, hash, value);
+            this.table = table;
+        }
+        return value;
+    }
+
+    public int size() {
+        return this.table.size;
+    }
+
+    public synchronized void clear() {
+        this.generation++;
+        this.table = new Table(INITIAL_CAPACITY);
+    }
+
+    /**
+     * A fixed capacity table, with linear probing.
+     */
+    private final class Table {
+        private final int capacity;
+        private final int mask;
+
+        /** Keys at even indexes, values at the following odd index */
+        private final AtomicReferenceArray<Object> entries;
+
+        /** The number of entries, only modified whilst holding the cache lock */
+        private int size = 0;
+
+        Table(int capacity) {
+            this.capacity = capacity;
+            this.mask = capacity - 1;
+            this.entries = new AtomicReferenceArray<>(capacity * 2);
+        }
+
+        @SuppressWarnings("unchecked")
+        V get(String key, int hash) {
+            AtomicReferenceArray<Object> entries = this.entries;
+            for (int i = hash & this.mask; ; i = (i + 1) & this.mask) {
+                String k = (String) entries.get(i * 2);
+                if (k == null) {
+                    return null;
+                }
+                if (k.equalsIgnoreCase(key)) {
+                    return (V) entries.get(i * 2 + 1);
+                }
+            }
+        }
+
+        void put(String key, int hash, V value) {
+            AtomicReferenceArray<Object> entries = this.entries;
+            for (int i = hash & this.mask; ; i = (i + 1) & this.mask) {
+                if (entries.get(i * 2) == null) {
+                    entries.set(i * 2 + 1, value);
+                    entries.set(i * 2, key);
+                    this.size++;
+                    return;
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        Table resize() {
+            Table resized = new Table(this.capacity * 2);
+            for (int i = 0; i < this.capacity; i++) {
+                String k = (String) this.entries.get(i * 2);
+                if (k != null) {
+                    resized.put(k, hash(k), (V) this.entries.get(i * 2 + 1));
+                }
+            }
+            return resized;
+        }
+    }
+}
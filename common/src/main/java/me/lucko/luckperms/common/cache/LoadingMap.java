@@ -29,6 +29,7 @@ import com.google.common.collect.ForwardingMap;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 
 public class LoadingMap<K, V> extends ForwardingMap<K, V> implements Map<K, V> {
@@ -66,4 +67,10 @@ public class LoadingMap<K, V> extends ForwardingMap<K, V> implements Map<K, V> {
         //noinspection unchecked
         return this.map.computeIfAbsent((K) key, this.function);
     }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        // delegate directly - the default implementation would call #get and load absent values
+        return this.map.computeIfPresent(key, remappingFunction);
+    }
 }
\ No newline at end of file
@@ -39,16 +39,25 @@ import net.luckperms.api.cacheddata.CachedDataManager;
 import net.luckperms.api.cacheddata.CachedMetaData;
 import net.luckperms.api.cacheddata.CachedPermissionData;
 import net.luckperms.api.metastacking.MetaStackDefinition;
+import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.ChatMetaType;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.NodeType;
+import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.QueryOptions;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.IntFunction;
@@ -60,11 +69,12 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
     private final LuckPermsPlugin plugin;
     private final AbstractContainer<PermissionCache, CachedPermissionData> permission;
     private final AbstractContainer<MetaCache, CachedMetaData> meta;
+    private final List<Runnable> permissionDataListeners = new CopyOnWriteArrayList<>();
 
     protected AbstractCachedDataManager(LuckPermsPlugin plugin) {
         this.plugin = plugin;
-        this.permission = new AbstractContainer<>(this::calculatePermissions);
-        this.meta = new AbstractContainer<>(this::calculateMeta);
+        this.permission = new AbstractContainer<>(this::calculatePermissions, this::onPermissionDataChange);
+        this.meta = new AbstractContainer<>(this::calculateMeta, null);
     }
 
     public LuckPermsPlugin getPlugin() {
@@ -81,6 +91,35 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         return this.meta;
     }
 
+    /**
+     * Registers a listener to be called whenever the cached permission data
+     * held by this manager is invalidated or replaced, or the owners own
+     * permission nodes change.
+     *
+     * <p>Listeners are called on the thread which made the change, and should
+     * do as little work as possible.</p>
+     *
+     * @param listener the listener
+     */
+    public void addPermissionDataListener(Runnable listener) {
+        this.permissionDataListeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener previously added by {@link #addPermissionDataListener(Runnable)}.
+     *
+     * @param listener the listener
+     */
+    public void removePermissionDataListener(Runnable listener) {
+        this.permissionDataListeners.remove(listener);
+    }
+
+    private void onPermissionDataChange() {
+        for (Runnable listener : this.permissionDataListeners) {
+            listener.run();
+        }
+    }
+
     @Override
     public @NonNull PermissionCache getPermissionData(@NonNull QueryOptions queryOptions) {
         return this.permission.get(queryOptions);
@@ -148,8 +187,32 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
      * @param queryOptions the query options
      */
     protected abstract void resolveMeta(MetaAccumulator accumulator, QueryOptions queryOptions);
+
+    /**
+     * Gets if the given node, held by the owner in the given {@link DataType},
+     * would be included when resolving data for the given {@link QueryOptions}.
+     *
+     * @param dataType the data type holding the node
+     * @param node the node
+     * @param queryOptions the query options
+     * @return true if the node applies
+     */
+    protected abstract boolean isApplicable(DataType dataType, Node node, QueryOptions queryOptions);
+
+    /**
+     * Resolves the value of the given permission from the owners own nodes
+     * for the given {@link QueryOptions}, ignoring any inherited nodes.
+     *
+     * <p>Returns null if the owner doesn't set the permission directly, or if
+     * the value set by the owner could be overridden by an inherited one.</p>
+     *
+     * @param permission the permission, in lowercase
+     * @param queryOptions the query options
+     * @return the value, or null if it can't be determined from own nodes alone
+     */
+    protected abstract @Nullable Boolean resolveOwnPermission(String permission, QueryOptions queryOptions);
     
-    private PermissionCache calculatePermissions(QueryOptions queryOptions) {
+    protected PermissionCache calculatePermissions(QueryOptions queryOptions) {
         Objects.requireNonNull(queryOptions, "queryOptions");
         CacheMetadata metadata = getMetadataForQueryOptions(queryOptions);
 
@@ -173,9 +236,111 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         this.meta.invalidate();
     }
 
+    /**
+     * Invalidates the cached data following the addition or removal of some of
+     * the owners own nodes.
+     *
+     * <p>Rather than dropping every cache, only the caches for query options the
+     * nodes apply in are affected. Where possible, the existing permission cache
+     * is patched with the new value for each changed permission, instead of
+     * resolving the whole inheritance tree again.</p>
+     *
+     * <p>Changes to inheritance nodes can't be handled in this way, and result
+     * in a full invalidation.</p>
+     *
+     * @param dataType the data type the nodes were changed in
+     * @param changedNodes the nodes which were added or removed
+     */
+    public final void invalidate(DataType dataType, Collection<? extends Node> changedNodes) {
+        for (Node node : changedNodes) {
+            if (node instanceof InheritanceNode) {
+                invalidate();
+                return;
+            }
+        }
+
+        boolean permissionsChanged = false;
+        for (QueryOptions queryOptions : this.permission.cache.keySet()) {
+            List<Node> applicable = applicableNodes(dataType, changedNodes, queryOptions);
+            if (!applicable.isEmpty()) {
+                this.permission.cache.computeIfPresent(queryOptions, (k, cache) -> patchPermissions(cache, applicable));
+                permissionsChanged = true;
+            }
+        }
+
+        // listeners may hold on to permission data for query options which aren't
+        // currently cached (or which the nodes don't apply in), so tell them about
+        // any permission change, not just the ones which patched a cache
+        if (!permissionsChanged) {
+            for (Node node : changedNodes) {
+                if (NodeType.PERMISSION.matches(node) || NodeType.REGEX_PERMISSION.matches(node)) {
+                    permissionsChanged = true;
+                    break;
+                }
+            }
+        }
+        if (permissionsChanged) {
+            onPermissionDataChange();
+        }
+
+        for (QueryOptions queryOptions : this.meta.cache.keySet()) {
+            for (Node node : applicableNodes(dataType, changedNodes, queryOptions)) {
+                if (!NodeType.PERMISSION.matches(node) && !NodeType.REGEX_PERMISSION.matches(node)) {
+                    this.meta.invalidate(queryOptions);
+                    break;
+                }
+            }
+        }
+    }
+
+    private List<Node> applicableNodes(DataType dataType, Collection<? extends Node> nodes, QueryOptions queryOptions) {
+        List<Node> applicable = new ArrayList<>();
+        for (Node node : nodes) {
+            if (isApplicable(dataType, node, queryOptions)) {
+                applicable.add(node);
+            }
+        }
+        return applicable;
+    }
+
+    /**
+     * Creates a copy of the given permission cache with the values for the
+     * changed nodes recalculated.
+     *
+     * <p>When the owners own nodes take priority over inherited ones, and the
+     * owner still sets a value for a changed permission, that value is the
+     * resolved one. Otherwise the permission may be inherited from a parent,
+     * and null is returned so the cache is recalculated in full.</p>
+     *
+     * @param cache the existing cache
+     * @param changedNodes the changed nodes which apply to the cache
+     * @return the patched cache, or null if it must be recalculated
+     */
+    private @Nullable PermissionCache patchPermissions(PermissionCache cache, List<Node> changedNodes) {
+        QueryOptions queryOptions = cache.getQueryOptions();
+        ConcurrentHashMap<String, Boolean> sourcePermissions = new ConcurrentHashMap<>(cache.getPermissionMap());
+
+        for (Node node : changedNodes) {
+            // shorthand expansions are resolved with a lower priority, too complex to patch
+            if (!node.resolveShorthand().isEmpty()) {
+                return null;
+            }
+
+            String permission = node.getKey().toLowerCase();
+            Boolean value = resolveOwnPermission(permission, queryOptions);
+            if (value == null) {
+                return null;
+            }
+            sourcePermissions.put(permission, value);
+        }
+
+        return new PermissionCache(queryOptions, getMetadataForQueryOptions(queryOptions), getCalculatorFactory(), sourcePermissions);
+    }
+
     @Override
     public final void invalidatePermissionCalculators() {
         this.permission.cache.values().forEach(PermissionCache::invalidateCache);
+        onPermissionDataChange();
     }
 
     public final void performCacheCleanup() {
@@ -185,13 +350,21 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
 
     private static final class AbstractContainer<C extends I, I extends CachedData> implements Container<I> {
         private final Function<QueryOptions, C> cacheLoader;
+        private final @Nullable Runnable changeListener;
         private final LoadingMap<QueryOptions, C> cache;
 
-        public AbstractContainer(Function<QueryOptions, C> cacheLoader) {
+        public AbstractContainer(Function<QueryOptions, C> cacheLoader, @Nullable Runnable changeListener) {
             this.cacheLoader = cacheLoader;
+            this.changeListener = changeListener;
             this.cache = LoadingMap.of(this.cacheLoader);
         }
 
+        private void onChange() {
+            if (this.changeListener != null) {
+                this.changeListener.run();
+            }
+        }
+
         public void cleanup() {
             this.cache.values().removeIf(value -> ((UsageTracked) value).usedSince(TimeUnit.MINUTES.toMillis(2)));
         }
@@ -217,6 +390,7 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
             CompletableFuture.runAsync(() -> {
                 final C value = this.cacheLoader.apply(queryOptions);
                 this.cache.put(queryOptions, value);
+                onChange();
             }, CaffeineFactory.executor());
         }
 
@@ -226,6 +400,7 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
 
             // invalidate the previous value until we're done recalculating
             this.cache.remove(queryOptions);
+            onChange();
 
             // request recalculation from the cache
             return CompletableFuture.supplyAsync(() -> this.cache.get(queryOptions), CaffeineFactory.executor());
@@ -247,11 +422,13 @@ public abstract class AbstractCachedDataManager implements CachedDataManager {
         public void invalidate(@NonNull QueryOptions queryOptions) {
             Objects.requireNonNull(queryOptions, "queryOptions");
             this.cache.remove(queryOptions);
+            onChange();
         }
 
         @Override
         public void invalidate() {
             this.cache.clear();
+            onChange();
         }
     }
 
@@ -28,12 +28,19 @@ package me.lucko.luckperms.common.cacheddata;
 import me.lucko.luckperms.common.cacheddata.type.MetaAccumulator;
 import me.lucko.luckperms.common.calculator.CalculatorFactory;
 import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.graph.TraversalAlgorithm;
+import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.model.PermissionHolder;
 
 import net.luckperms.api.metastacking.MetaStackDefinition;
+import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.ChatMetaType;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.query.Flag;
 import net.luckperms.api.query.QueryOptions;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import java.util.Map;
 import java.util.function.IntFunction;
 
@@ -83,4 +90,44 @@ public abstract class HolderCachedDataManager<T extends PermissionHolder> extend
     protected void resolveMeta(MetaAccumulator accumulator, QueryOptions queryOptions) {
         this.holder.accumulateMeta(accumulator, queryOptions);
     }
+
+    @Override
+    protected boolean isApplicable(DataType dataType, Node node, QueryOptions queryOptions) {
+        return this.holder.isApplicable(dataType, node, queryOptions);
+    }
+
+    @Override
+    protected @Nullable Boolean resolveOwnPermission(String permission, QueryOptions queryOptions) {
+        if (!ownNodesTakePriority(queryOptions)) {
+            return null;
+        }
+
+        for (Node node : this.holder.getOwnNodes(queryOptions)) {
+            if (node.getKey().toLowerCase().equals(permission)) {
+                return node.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets if the holders own nodes are always resolved ahead of any inherited
+     * nodes for the given {@link QueryOptions}.
+     *
+     * @param queryOptions the query options
+     * @return true if own nodes take priority
+     */
+    private boolean ownNodesTakePriority(QueryOptions queryOptions) {
+        if (!queryOptions.flag(Flag.RESOLVE_INHERITANCE)) {
+            return true;
+        }
+
+        // the post traversal sort places users ahead of groups, but orders groups by weight
+        if (getPlugin().getConfiguration().get(ConfigKeys.POST_TRAVERSAL_INHERITANCE_SORT)) {
+            return this.holder.getType() == HolderType.USER;
+        }
+
+        // a post-order traversal visits the start node last
+        return getPlugin().getConfiguration().get(ConfigKeys.INHERITANCE_TRAVERSAL_ALGORITHM) != TraversalAlgorithm.DEPTH_FIRST_POST_ORDER;
+    }
 }
@@ -0,0 +1,155 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.cacheddata;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+
+import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
+import me.lucko.luckperms.common.inheritance.InheritanceGraphFactory;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.model.User;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.CaffeineFactory;
+
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.types.InheritanceNode;
+import net.luckperms.api.query.QueryOptions;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Interns the {@link PermissionCache}s of users which are guaranteed to resolve
+ * identical permissions.
+ *
+ * <p>Users who only have inheritance nodes, and who inherit from the same groups
+ * in the same order, will always resolve the same permissions. Rather than each
+ * holding their own copy, they share one permission map and calculator.</p>
+ *
+ * <p>Shared caches are never modified - if a user later gains their own permission
+ * nodes, a private cache is created for them.</p>
+ */
+public class PermissionCacheInterner {
+    private final LuckPermsPlugin plugin;
+
+    /**
+     * The interned caches
+     */
+    private final Cache<Key, PermissionCache> cache = CaffeineFactory.newBuilder()
+            .maximumSize(1000)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
+    public PermissionCacheInterner(LuckPermsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Gets the interned cache for the given user, calculating it using the
+     * given supplier if necessary.
+     *
+     * @param user the user
+     * @param queryOptions the query options
+     * @param calculator the function used to calculate the cache
+     * @return the interned cache, or null if the user's permissions can't be shared
+     */
+    public @Nullable PermissionCache get(User user, QueryOptions queryOptions, Supplier<PermissionCache> calculator) {
+        Key key = createKey(user, queryOptions);
+        if (key == null) {
+            return null;
+        }
+        return this.cache.get(key, k -> calculator.get());
+    }
+
+    private @Nullable Key createKey(User user, QueryOptions queryOptions) {
+        ImmutableList.Builder<Map.Entry<String, Boolean>> ownNodes = ImmutableList.builder();
+        for (Node node : user.getOwnNodes(queryOptions)) {
+            // the user has their own permissions, can't share
+            if (!(node instanceof InheritanceNode)) {
+                return null;
+            }
+            ownNodes.add(Maps.immutableEntry(node.getKey(), node.getValue()));
+        }
+
+        InheritanceGraphFactory graphFactory = this.plugin.getInheritanceGraphFactory();
+        return new Key(
+                ownNodes.build(),
+                ImmutableList.copyOf(graphFactory.getGraph(queryOptions).successors(user)),
+                user.getPrimaryGroup().getStoredValue().orElse(null),
+                queryOptions,
+                graphFactory.getTraversalCache().getGeneration()
+        );
+    }
+
+    /**
+     * Invalidates all interned caches.
+     */
+    public void invalidate() {
+        this.cache.invalidateAll();
+    }
+
+    private static final class Key {
+        private final List<Map.Entry<String, Boolean>> ownNodes;
+        private final List<PermissionHolder> parents;
+        private final String primaryGroup;
+        private final QueryOptions queryOptions;
+        private final int generation;
+        private final int hashCode;
+
+        Key(List<Map.Entry<String, Boolean>> ownNodes, List<PermissionHolder> parents, String primaryGroup, QueryOptions queryOptions, int generation) {
+            this.ownNodes = ownNodes;
+            this.parents = parents;
+            this.primaryGroup = primaryGroup;
+            this.queryOptions = queryOptions;
+            this.generation = generation;
+            this.hashCode = Objects.hash(ownNodes, parents, primaryGroup, queryOptions, generation);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return this.generation == other.generation &&
+                    this.ownNodes.equals(other.ownNodes) &&
+                    this.parents.equals(other.parents) &&
+                    Objects.equals(this.primaryGroup, other.primaryGroup) &&
+                    this.queryOptions.equals(other.queryOptions);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+}
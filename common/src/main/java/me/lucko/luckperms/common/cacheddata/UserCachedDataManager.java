@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.cacheddata;
 
+import me.lucko.luckperms.common.cacheddata.type.PermissionCache;
 import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.model.User;
 
@@ -45,4 +46,13 @@ public class UserCachedDataManager extends HolderCachedDataManager<User> impleme
         return new CacheMetadata(HolderType.USER, this.holder.getPlainDisplayName(), queryOptions);
     }
 
+    @Override
+    protected PermissionCache calculatePermissions(QueryOptions queryOptions) {
+        PermissionCache shared = getPlugin().getUserManager().getPermissionCacheInterner().get(this.holder, queryOptions, () -> super.calculatePermissions(queryOptions));
+        if (shared == null) {
+            return super.calculatePermissions(queryOptions);
+        }
+        return new PermissionCache(getMetadataForQueryOptions(queryOptions), shared);
+    }
+
 }
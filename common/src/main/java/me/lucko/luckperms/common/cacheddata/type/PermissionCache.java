@@ -69,6 +69,11 @@ public class PermissionCache extends UsageTracked implements CachedPermissionDat
      */
     private final PermissionCalculator calculator;
 
+    /**
+     * The name passed to the verbose handler when checks are made
+     */
+    private final String verboseCheckTarget;
+
     public PermissionCache(QueryOptions queryOptions, CacheMetadata metadata, CalculatorFactory calculatorFactory, ConcurrentHashMap<String, Boolean> sourcePermissions) {
         this.queryOptions = queryOptions;
         this.permissions = sourcePermissions;
@@ -76,6 +81,25 @@ public class PermissionCache extends UsageTracked implements CachedPermissionDat
 
         this.calculator = calculatorFactory.build(queryOptions, metadata);
         this.calculator.setSourcePermissions(this.permissions);
+        this.verboseCheckTarget = PermissionCalculator.verboseCheckTarget(metadata);
+    }
+
+    /**
+     * Creates a new cache which shares its permissions and calculator with
+     * an existing one.
+     *
+     * <p>Shared caches are never modified in place - any changes result in a new
+     * cache being created for the holder.</p>
+     *
+     * @param metadata the metadata for the holder the new cache is for
+     * @param shared the cache to share data with
+     */
+    public PermissionCache(CacheMetadata metadata, PermissionCache shared) {
+        this.queryOptions = shared.queryOptions;
+        this.permissions = shared.permissions;
+        this.permissionsUnmodifiable = shared.permissionsUnmodifiable;
+        this.calculator = shared.calculator;
+        this.verboseCheckTarget = PermissionCalculator.verboseCheckTarget(metadata);
     }
 
     @Override
@@ -96,7 +120,7 @@ public class PermissionCache extends UsageTracked implements CachedPermissionDat
         if (permission == null) {
             throw new NullPointerException("permission");
         }
-        return this.calculator.checkPermission(permission, origin);
+        return this.calculator.checkPermission(permission, origin, this.verboseCheckTarget);
     }
 
     @Override
@@ -27,7 +27,7 @@ package me.lucko.luckperms.common.calculator;
 
 import com.google.common.collect.ImmutableList;
 
-import me.lucko.luckperms.common.cache.LoadingMap;
+import me.lucko.luckperms.common.cache.CaseInsensitiveLoadingCache;
 import me.lucko.luckperms.common.cacheddata.CacheMetadata;
 import me.lucko.luckperms.common.calculator.processor.PermissionProcessor;
 import me.lucko.luckperms.common.calculator.result.TristateResult;
@@ -57,8 +57,11 @@ public class PermissionCalculator implements Function<String, TristateResult> {
     /** The processors which back this calculator */
     private final ImmutableList<PermissionProcessor> processors;
 
+    /** The maximum number of permission check results to cache */
+    private static final int LOOKUP_CACHE_MAXIMUM_SIZE = 10000;
+
     /** Loading cache for permission checks */
-    private final LoadingMap<String, TristateResult> lookupCache = LoadingMap.of(this);
+    private final CaseInsensitiveLoadingCache<TristateResult> lookupCache = new CaseInsensitiveLoadingCache<>(this, LOOKUP_CACHE_MAXIMUM_SIZE);
 
     /** The object name passed to the verbose handler when checks are made */
     private final String verboseCheckTarget;
@@ -68,10 +71,21 @@ public class PermissionCalculator implements Function<String, TristateResult> {
         this.metadata = metadata;
         this.processors = processors;
 
-        if (this.metadata.getHolderType() == HolderType.GROUP) {
-            this.verboseCheckTarget = "group/" + this.metadata.getObjectName();
+        this.verboseCheckTarget = verboseCheckTarget(metadata);
+    }
+
+    /**
+     * Gets the name to pass to the verbose handler for checks made against
+     * the holder described by the given metadata.
+     *
+     * @param metadata the cache metadata
+     * @return the verbose check target
+     */
+    public static String verboseCheckTarget(CacheMetadata metadata) {
+        if (metadata.getHolderType() == HolderType.GROUP) {
+            return "group/" + metadata.getObjectName();
         } else {
-            this.verboseCheckTarget = this.metadata.getObjectName();
+            return metadata.getObjectName();
         }
     }
 
@@ -85,11 +99,26 @@ public class PermissionCalculator implements Function<String, TristateResult> {
      * @return the result
      */
     public TristateResult checkPermission(String permission, PermissionCheckEvent.Origin origin) {
+        return checkPermission(permission, origin, this.verboseCheckTarget);
+    }
+
+    /**
+     * Performs a permission check against this calculator, on behalf of the
+     * given verbose check target.
+     *
+     * <p>Used when the calculator is shared between holders.</p>
+     *
+     * @param permission the permission to check
+     * @param origin marks where this check originated from
+     * @param verboseCheckTarget the name to pass to the verbose handler
+     * @return the result
+     */
+    public TristateResult checkPermission(String permission, PermissionCheckEvent.Origin origin, String verboseCheckTarget) {
         // get the result
         TristateResult result = this.lookupCache.get(permission);
 
         // log this permission lookup to the verbose handler
-        this.plugin.getVerboseHandler().offerPermissionCheckEvent(origin, this.verboseCheckTarget, this.metadata.getQueryOptions(), permission, result);
+        this.plugin.getVerboseHandler().offerPermissionCheckEvent(origin, verboseCheckTarget, this.metadata.getQueryOptions(), permission, result);
 
         // return the result
         return result;
@@ -98,7 +127,7 @@ public class PermissionCalculator implements Function<String, TristateResult> {
     @Override
     public TristateResult apply(@NonNull String permission) {
         // convert the permission to lowercase, as all values in the backing map are also lowercase.
-        // this allows fast case insensitive lookups
+        // the lookup cache is case insensitive, so this only happens once per permission
         permission = permission.toLowerCase();
 
         // offer the permission to the permission vault
@@ -33,19 +33,51 @@ import me.lucko.luckperms.common.node.types.RegexPermission;
 
 import net.luckperms.api.util.Tristate;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 public class RegexProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
     private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(RegexProcessor.class);
 
-    private List<Map.Entry<Pattern, TristateResult>> regexPermissions = Collections.emptyList();
+    /** Matches constructs which can't safely be embedded into a combined pattern */
+    private static final Pattern UNCOMBINABLE = Pattern.compile("\\\\(?:[1-9]|k<|Q)|#");
+
+    private CompiledRegexes regexPermissions = CompiledRegexes.EMPTY;
 
     @Override
     public TristateResult hasPermission(String permission) {
-        for (Map.Entry<Pattern, TristateResult> e : this.regexPermissions) {
+        CompiledRegexes regexes = this.regexPermissions;
+        if (regexes.permissions.isEmpty()) {
+            return TristateResult.UNDEFINED;
+        }
+
+        if (regexes.literalPrefixes != null && !hasPrefix(regexes.literalPrefixes, permission)) {
+            return TristateResult.UNDEFINED;
+        }
+
+        if (regexes.combinedPattern != null) {
+            Matcher matcher = regexes.combinedPattern.matcher(permission);
+            if (!matcher.matches()) {
+                return TristateResult.UNDEFINED;
+            }
+
+            // alternatives are attempted in order, so the first participating group is the first match
+            int[] combinedGroups = regexes.combinedGroups;
+            for (int i = 0; i < combinedGroups.length; i++) {
+                if (matcher.start(combinedGroups[i]) != -1) {
+                    return regexes.permissions.get(i).getValue();
+                }
+            }
+            return TristateResult.UNDEFINED;
+        }
+
+        for (Map.Entry<Pattern, TristateResult> e : regexes.permissions) {
             if (e.getKey().matcher(permission).matches()) {
                 return e.getValue();
             }
@@ -70,6 +102,157 @@ public class RegexProcessor extends AbstractPermissionProcessor implements Permi
             TristateResult value = RESULT_FACTORY.result(Tristate.of(e.getValue()), "pattern: " + pattern.pattern());
             builder.add(Maps.immutableEntry(pattern, value));
         }
-        this.regexPermissions = builder.build();
+
+        List<Map.Entry<Pattern, TristateResult>> regexPermissions = builder.build();
+
+        // work out the combined pattern
+        Pattern combinedPattern = null;
+        int[] combinedGroups = new int[regexPermissions.size()];
+        if (regexPermissions.size() > 1) {
+            StringBuilder sb = new StringBuilder("(?:");
+            int group = 1;
+            for (int i = 0; i < regexPermissions.size(); i++) {
+                Pattern pattern = regexPermissions.get(i).getKey();
+                if (UNCOMBINABLE.matcher(pattern.pattern()).find()) {
+                    sb = null;
+                    break;
+                }
+
+                if (i != 0) {
+                    sb.append('|');
+                }
+                sb.append('(').append(pattern.pattern()).append(')');
+                combinedGroups[i] = group;
+                group += 1 + pattern.matcher("").groupCount();
+            }
+
+            if (sb != null) {
+                try {
+                    combinedPattern = Pattern.compile(sb.append(')').toString());
+                } catch (PatternSyntaxException ex) {
+                    // ignore, fallback to checking each pattern in turn
+                }
+            }
+        }
+
+        // work out the literal prefixes
+        TreeSet<String> prefixes = new TreeSet<>();
+        for (Map.Entry<Pattern, TristateResult> e : regexPermissions) {
+            String prefix = literalPrefix(e.getKey().pattern());
+            if (prefix.isEmpty()) {
+                prefixes = null;
+                break;
+            }
+
+            // only keep the shortest prefixes - if 'a' is a required prefix, there's no need to consider 'ab'
+            String lower = prefixes.floor(prefix);
+            if (lower != null && prefix.startsWith(lower)) {
+                continue;
+            }
+            prefixes.tailSet(prefix).removeIf(p -> p.startsWith(prefix));
+            prefixes.add(prefix);
+        }
+
+        String[] literalPrefixes = prefixes == null ? null : prefixes.toArray(new String[0]);
+        this.regexPermissions = new CompiledRegexes(regexPermissions, literalPrefixes, combinedPattern, combinedGroups);
+    }
+
+    /**
+     * Gets if the given string starts with one of the given prefixes.
+     *
+     * <p>The prefixes must be sorted, and no prefix may be a prefix of another.
+     * Under these conditions, the only candidate is the greatest prefix which
+     * is less than or equal to the string.</p>
+     *
+     * @param prefixes the prefixes
+     * @param s the string
+     * @return true if the string has one of the prefixes
+     */
+    private static boolean hasPrefix(String[] prefixes, String s) {
+        int idx = Arrays.binarySearch(prefixes, s);
+        if (idx >= 0) {
+            return true;
+        }
+
+        int floor = -idx - 2;
+        return floor >= 0 && s.startsWith(prefixes[floor]);
+    }
+
+    /**
+     * Determines the literal string which any input matching the given
+     * regex must start with.
+     *
+     * <p>This is a conservative approximation - an empty string is returned
+     * whenever the prefix can't be determined.</p>
+     *
+     * @param regex the regex
+     * @return the literal prefix
+     */
+    private static String literalPrefix(String regex) {
+        if (regex.indexOf('|') != -1) {
+            return "";
+        }
+
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        while (i < regex.length()) {
+            char c = regex.charAt(i);
+            char literal;
+            int next;
+
+            if (Character.isLetterOrDigit(c) || c == '_' || c == '-' || c == ':' || c == '/' || c == ' ') {
+                literal = c;
+                next = i + 1;
+            } else if (c == '\\' && i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+                literal = regex.charAt(i + 1);
+                next = i + 2;
+            } else {
+                break;
+            }
+
+            // a quantifier makes the preceding character optional or repeatable
+            if (next < regex.length()) {
+                char q = regex.charAt(next);
+                if (q == '?' || q == '*' || q == '+' || q == '{') {
+                    break;
+                }
+            }
+
+            sb.append(literal);
+            i = next;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The regex permissions, together with the structures derived from them.
+     */
+    private static final class CompiledRegexes {
+        static final CompiledRegexes EMPTY = new CompiledRegexes(Collections.emptyList(), null, null, new int[0]);
+
+        /** The regex permissions, in the order they should be checked */
+        final List<Map.Entry<Pattern, TristateResult>> permissions;
+
+        /**
+         * The sorted literal prefixes that a permission must start with in order to match
+         * any of the regex permissions, or null if no such prefilter could be determined.
+         */
+        final String[] literalPrefixes;
+
+        /**
+         * A single pattern formed from the alternation of all regex permissions,
+         * or null if the permissions could not be combined.
+         */
+        final Pattern combinedPattern;
+
+        /** The capturing group index of each regex permission within the combined pattern */
+        final int[] combinedGroups;
+
+        CompiledRegexes(List<Map.Entry<Pattern, TristateResult>> permissions, String[] literalPrefixes, Pattern combinedPattern, int[] combinedGroups) {
+            this.permissions = permissions;
+            this.literalPrefixes = literalPrefixes;
+            this.combinedPattern = combinedPattern;
+            this.combinedGroups = combinedGroups;
+        }
     }
 }
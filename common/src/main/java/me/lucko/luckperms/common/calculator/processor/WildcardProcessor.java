@@ -25,15 +25,14 @@
 
 package me.lucko.luckperms.common.calculator.processor;
 
-import com.google.common.collect.ImmutableMap;
-
 import me.lucko.luckperms.common.calculator.result.TristateResult;
 import me.lucko.luckperms.common.node.AbstractNode;
 
 import net.luckperms.api.util.Tristate;
 
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class WildcardProcessor extends AbstractPermissionProcessor implements PermissionProcessor {
     private static final TristateResult.Factory RESULT_FACTORY = new TristateResult.Factory(WildcardProcessor.class);
@@ -42,34 +41,34 @@ public class WildcardProcessor extends AbstractPermissionProcessor implements Pe
     private static final String ROOT_WILDCARD = "*";
     private static final String ROOT_WILDCARD_WITH_QUOTES = "'*'";
 
-    private Map<String, TristateResult> wildcardPermissions = Collections.emptyMap();
+    private TrieNode wildcardPermissions = TrieNode.EMPTY;
     private TristateResult rootWildcardState = TristateResult.UNDEFINED;
 
     @Override
     public TristateResult hasPermission(String permission) {
-        String node = permission;
+        TristateResult match = null;
 
-        while (true) {
-            int endIndex = node.lastIndexOf(AbstractNode.NODE_SEPARATOR);
-            if (endIndex == -1) {
-                break;
+        // walk down the trie, remembering the most specific wildcard seen so far.
+        // a wildcard applies to the prefix that ends immediately before a separator
+        TrieNode node = this.wildcardPermissions;
+        for (int i = 0, len = permission.length(); i < len; i++) {
+            char c = permission.charAt(i);
+            if (c == AbstractNode.NODE_SEPARATOR && i != 0 && node.value != null) {
+                match = node.value;
             }
 
-            node = node.substring(0, endIndex);
-            if (!node.isEmpty()) {
-                TristateResult match = this.wildcardPermissions.get(node);
-                if (match != null && match.result() != Tristate.UNDEFINED) {
-                    return match;
-                }
+            node = node.child(c);
+            if (node == null) {
+                break;
             }
         }
 
-        return this.rootWildcardState;
+        return match != null ? match : this.rootWildcardState;
     }
 
     @Override
     public void refresh() {
-        ImmutableMap.Builder<String, TristateResult> builder = ImmutableMap.builder();
+        TrieNode.Builder builder = new TrieNode.Builder();
         for (Map.Entry<String, Boolean> e : this.sourceMap.entrySet()) {
             String key = e.getKey();
             if (!key.endsWith(WILDCARD_SUFFIX) || key.length() <= 2) {
@@ -78,7 +77,9 @@ public class WildcardProcessor extends AbstractPermissionProcessor implements Pe
             key = key.substring(0, key.length() - 2);
 
             TristateResult value = RESULT_FACTORY.result(Tristate.of(e.getValue()), "match: " + key);
-            builder.put(key, value);
+            if (value.result() != Tristate.UNDEFINED) {
+                builder.put(key, value);
+            }
         }
         this.wildcardPermissions = builder.build();
 
@@ -88,4 +89,66 @@ public class WildcardProcessor extends AbstractPermissionProcessor implements Pe
         }
         this.rootWildcardState = RESULT_FACTORY.result(state, "root");
     }
+
+    /**
+     * An immutable character trie of wildcard prefixes.
+     *
+     * <p>Children are held in parallel sorted arrays so lookups can be made
+     * without allocating.</p>
+     */
+    private static final class TrieNode {
+        static final TrieNode EMPTY = new TrieNode(new char[0], new TrieNode[0], null);
+
+        private final char[] keys;
+        private final TrieNode[] children;
+        final TristateResult value;
+
+        private TrieNode(char[] keys, TrieNode[] children, TristateResult value) {
+            this.keys = keys;
+            this.children = children;
+            this.value = value;
+        }
+
+        TrieNode child(char c) {
+            char[] keys = this.keys;
+            switch (keys.length) {
+                case 0:
+                    return null;
+                case 1:
+                    return keys[0] == c ? this.children[0] : null;
+                default:
+                    int idx = Arrays.binarySearch(keys, c);
+                    return idx < 0 ? null : this.children[idx];
+            }
+        }
+
+        static final class Builder {
+            private final Map<Character, Builder> children = new TreeMap<>();
+            private TristateResult value;
+
+            void put(String key, TristateResult value) {
+                Builder node = this;
+                for (int i = 0; i < key.length(); i++) {
+                    node = node.children.computeIfAbsent(key.charAt(i), c -> new Builder());
+                }
+                node.value = value;
+            }
+
+            TrieNode build() {
+                if (this.children.isEmpty() && this.value == null) {
+                    return EMPTY;
+                }
+
+                char[] keys = new char[this.children.size()];
+                TrieNode[] children = new TrieNode[this.children.size()];
+                int i = 0;
+                for (Map.Entry<Character, Builder> e : this.children.entrySet()) {
+                    keys[i] = e.getKey();
+                    children[i] = e.getValue().build();
+                    i++;
+                }
+                return new TrieNode(keys, children, this.value);
+            }
+        }
+    }
 }
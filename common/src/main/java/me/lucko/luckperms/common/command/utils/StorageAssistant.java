@@ -36,6 +36,7 @@ import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
 
+import java.util.Collections;
 import java.util.Optional;
 
 /**
@@ -97,8 +98,8 @@ public final class StorageAssistant {
             return;
         }
 
-        plugin.getGroupManager().invalidateAllGroupCaches();
-        plugin.getUserManager().invalidateAllUserCaches();
+        // invalidate the caches of holders which inherit from the group
+        plugin.getInheritanceGraphFactory().getDependencyIndex().invalidateDependents(Collections.singleton(group.getName()));
 
         Optional<InternalMessagingService> messagingService = plugin.getMessagingService();
         if (messagingService.isPresent() && plugin.getConfiguration().get(ConfigKeys.AUTO_PUSH_UPDATES)) {
@@ -25,7 +25,6 @@
 
 package me.lucko.luckperms.common.commands.log;
 
-import me.lucko.luckperms.common.actionlog.Log;
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.ChildCommand;
 import me.lucko.luckperms.common.command.access.CommandPermission;
@@ -38,6 +37,7 @@ import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.factory.NodeBuilders;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.storage.Storage;
 import me.lucko.luckperms.common.util.Predicates;
 
 import net.luckperms.api.model.data.DataType;
@@ -46,7 +46,7 @@ import net.luckperms.api.node.Node;
 import java.util.Optional;
 import java.util.UUID;
 
-public class LogNotify extends ChildCommand<Log> {
+public class LogNotify extends ChildCommand<Storage> {
     private static final String IGNORE_NODE = "luckperms.log.notify.ignoring";
 
     public LogNotify(LocaleManager locale) {
@@ -86,7 +86,7 @@ public class LogNotify extends ChildCommand<Log> {
     }
 
     @Override
-    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Log log, ArgumentList args, String label) {
+    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Storage storage, ArgumentList args, String label) {
         if (sender.isConsole()) {
             Message.LOG_NOTIFY_CONSOLE.send(sender);
             return CommandResult.SUCCESS;
@@ -27,7 +27,8 @@ package me.lucko.luckperms.common.commands.log;
 
 import com.google.common.collect.ImmutableList;
 
-import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.ActionFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.command.abstraction.Command;
 import me.lucko.luckperms.common.command.abstraction.ParentCommand;
 import me.lucko.luckperms.common.locale.LocaleManager;
@@ -35,15 +36,16 @@ import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.storage.Storage;
 
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
-public class LogParentCommand extends ParentCommand<Log, Void> {
+public class LogParentCommand extends ParentCommand<Storage, Void> {
     private final ReentrantLock lock = new ReentrantLock();
 
     public LogParentCommand(LocaleManager locale) {
-        super(CommandSpec.LOG.localize(locale), "Log", Type.NO_TARGET_ARGUMENT, ImmutableList.<Command<Log>>builder()
+        super(CommandSpec.LOG.localize(locale), "Log", Type.NO_TARGET_ARGUMENT, ImmutableList.<Command<Storage>>builder()
                 .add(new LogRecent(locale))
                 .add(new LogSearch(locale))
                 .add(new LogNotify(locale))
@@ -59,19 +61,34 @@ public class LogParentCommand extends ParentCommand<Log, Void> {
         return this.lock; // all commands target the same log, so we share a lock between all "targets"
     }
 
-    @Override
-    protected Log getTarget(Void target, LuckPermsPlugin plugin, Sender sender) {
-        Log log = plugin.getStorage().getLog().join();
-
-        if (log == null) {
+    /**
+     * Loads a page of the log, informing the sender if it couldn't be loaded.
+     *
+     * @param storage the storage to load from
+     * @param sender the sender
+     * @param filter the filter to apply
+     * @param pageNumber the page number
+     * @param pageSize the size of each page
+     * @return the page, or null if it couldn't be loaded
+     */
+    static LogPage loadLogPage(Storage storage, Sender sender, ActionFilter filter, int pageNumber, int pageSize) {
+        try {
+            return storage.getLogPage(filter, pageNumber, pageSize).get();
+        } catch (Exception e) {
+            e.printStackTrace();
             Message.LOG_LOAD_ERROR.send(sender);
+            return null;
         }
+    }
 
-        return log;
+    @Override
+    protected Storage getTarget(Void target, LuckPermsPlugin plugin, Sender sender) {
+        // the log is queried page by page by each command, rather than loaded up-front
+        return plugin.getStorage();
     }
 
     @Override
-    protected void cleanup(Log log, LuckPermsPlugin plugin) {
+    protected void cleanup(Storage storage, LuckPermsPlugin plugin) {
 
     }
 
@@ -25,7 +25,8 @@
 
 package me.lucko.luckperms.common.commands.log;
 
-import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.ActionFilter;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.command.CommandResult;
 import me.lucko.luckperms.common.command.abstraction.ChildCommand;
@@ -36,6 +37,7 @@ import me.lucko.luckperms.common.locale.command.CommandSpec;
 import me.lucko.luckperms.common.locale.message.Message;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.sender.Sender;
+import me.lucko.luckperms.common.storage.Storage;
 import me.lucko.luckperms.common.util.DurationFormatter;
 import me.lucko.luckperms.common.util.Paginated;
 import me.lucko.luckperms.common.util.Predicates;
@@ -43,7 +45,7 @@ import me.lucko.luckperms.common.util.Predicates;
 import java.util.List;
 import java.util.UUID;
 
-public class LogRecent extends ChildCommand<Log> {
+public class LogRecent extends ChildCommand<Storage> {
     private static final int ENTRIES_PER_PAGE = 10;
     
     public LogRecent(LocaleManager locale) {
@@ -51,17 +53,23 @@ public class LogRecent extends ChildCommand<Log> {
     }
 
     @Override
-    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Log log, ArgumentList args, String label) {
+    public CommandResult execute(LuckPermsPlugin plugin, Sender sender, Storage storage, ArgumentList args, String label) {
         if (args.isEmpty()) {
             // No page or user
-            Paginated<LoggedAction> content = new Paginated<>(log.getContent());
-            return showLog(content.getMaxPages(ENTRIES_PER_PAGE), false, sender, content);
+            LogPage content = LogParentCommand.loadLogPage(storage, sender, ActionFilter.all(), LogPage.LAST_PAGE, ENTRIES_PER_PAGE);
+            if (content == null) {
+                return CommandResult.LOADING_ERROR;
+            }
+            return showLog(false, sender, content);
         }
 
         int page = args.getIntOrDefault(0, Integer.MIN_VALUE);
         if (page != Integer.MIN_VALUE) {
-            Paginated<LoggedAction> content = new Paginated<>(log.getContent());
-            return showLog(page, false, sender, content);
+            LogPage content = LogParentCommand.loadLogPage(storage, sender, ActionFilter.all(), page, ENTRIES_PER_PAGE);
+            if (content == null) {
+                return CommandResult.LOADING_ERROR;
+            }
+            return showLog(false, sender, content);
         }
 
         // User and possibly page
@@ -70,28 +78,28 @@ public class LogRecent extends ChildCommand<Log> {
             return CommandResult.INVALID_ARGS;
         }
 
-        Paginated<LoggedAction> content = new Paginated<>(log.getContent(uuid));
-        page = args.getIntOrDefault(1, Integer.MIN_VALUE);
-        if (page != Integer.MIN_VALUE) {
-            return showLog(page, true, sender, content);
-        } else {
-            return showLog(content.getMaxPages(ENTRIES_PER_PAGE), true, sender, content);
+        page = args.getIntOrDefault(1, LogPage.LAST_PAGE);
+        LogPage content = LogParentCommand.loadLogPage(storage, sender, ActionFilter.source(uuid), page, ENTRIES_PER_PAGE);
+        if (content == null) {
+            return CommandResult.LOADING_ERROR;
         }
+        return showLog(true, sender, content);
     }
 
-    private static CommandResult showLog(int page, boolean specificUser, Sender sender, Paginated<LoggedAction> log) {
-        int maxPage = log.getMaxPages(ENTRIES_PER_PAGE);
+    private static CommandResult showLog(boolean specificUser, Sender sender, LogPage log) {
+        int maxPage = log.getMaxPages();
         if (maxPage == 0) {
             Message.LOG_NO_ENTRIES.send(sender);
             return CommandResult.STATE_ERROR;
         }
 
+        int page = log.getPageNumber();
         if (page < 1 || page > maxPage) {
             Message.LOG_INVALID_PAGE_RANGE.send(sender, maxPage);
             return CommandResult.INVALID_ARGS;
         }
 
-        List<Paginated.Entry<LoggedAction>> entries = log.getPage(page, ENTRIES_PER_PAGE);
+        List<Paginated.Entry<LoggedAction>> entries = log.getEntries();
         if (specificUser) {
             String name = entries.stream().findAny().get().value().getSource().getName();
             if (name.contains("@")) {
@@ -104,7 +104,7 @@ public class VerboseCommand extends SingleCommand {
             plugin.getBootstrap().getScheduler().sync().execute(() -> {
                 Message.VERBOSE_ON_COMMAND.send(sender, executor.getName(), command);
 
-                verboseHandler.registerListener(sender, VerboseFilter.acceptAll(), true);
+                verboseHandler.registerListener(sender, VerboseFilter.acceptAll(), true, 1);
                 executor.performCommand(command);
                 verboseHandler.unregisterListener(sender);
 
@@ -132,7 +132,7 @@ public class VerboseCommand extends SingleCommand {
 
             boolean notify = !mode.equals("record");
 
-            verboseHandler.registerListener(sender, compiledFilter, notify);
+            verboseHandler.registerListener(sender, compiledFilter, notify, plugin.getConfiguration().get(ConfigKeys.VERBOSE_SAMPLE_RATE));
 
             if (notify) {
                 if (!filter.equals("")) {
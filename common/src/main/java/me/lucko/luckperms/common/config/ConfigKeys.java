@@ -144,6 +144,12 @@ public final class ConfigKeys {
      */
     public static final ConfigKey<Boolean> DEBUG_LOGINS = booleanKey("debug-logins", false);
 
+    /**
+     * The rate at which checks are sampled by verbose listeners. A value of n means 1 in every n
+     * checks will be recorded.
+     */
+    public static final ConfigKey<Integer> VERBOSE_SAMPLE_RATE = key(c -> Math.max(1, c.getInteger("verbose-sample-rate", 1)));
+
     /**
      * If LP should cancel login attempts for players whose permission data could not be loaded.
      */
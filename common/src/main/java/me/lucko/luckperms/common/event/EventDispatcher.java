@@ -108,7 +108,7 @@ public final class EventDispatcher {
         return this.eventBus;
     }
 
-    private boolean shouldPost(Class<? extends LuckPermsEvent> eventClass) {
+    public boolean shouldPost(Class<? extends LuckPermsEvent> eventClass) {
         return this.eventBus.shouldPost(eventClass);
     }
 
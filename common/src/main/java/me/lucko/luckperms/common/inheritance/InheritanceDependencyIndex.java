@@ -0,0 +1,139 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.inheritance;
+
+import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.CaffeineFactory;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An index of the inheritance relationships observed whilst traversing
+ * {@link InheritanceGraph}s, mapping each group to the holders which directly
+ * inherit from it.
+ *
+ * <p>Used to determine which holders could have cached data affected by a change
+ * to a group, so only their caches need to be invalidated.</p>
+ *
+ * <p>Relationships are never removed from the index, so it may over-report
+ * dependents - but it will never miss one which has been traversed.</p>
+ */
+public class InheritanceDependencyIndex {
+    private final LuckPermsPlugin plugin;
+
+    /**
+     * Mapping of group names to the holders which inherit from them.
+     *
+     * <p>Holders are weakly referenced, so they are dropped from the index once unloaded.</p>
+     */
+    private final Map<String, Set<PermissionHolder>> dependents = new ConcurrentHashMap<>();
+
+    public InheritanceDependencyIndex(LuckPermsPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    private static Set<PermissionHolder> newDependentSet() {
+        return Collections.newSetFromMap(CaffeineFactory.newBuilder().weakKeys().<PermissionHolder, Boolean>build().asMap());
+    }
+
+    /**
+     * Records that the given holder inherits from the given group.
+     *
+     * @param holder the holder
+     * @param groupName the name of the group
+     */
+    void recordInheritance(PermissionHolder holder, String groupName) {
+        Set<PermissionHolder> set = this.dependents.get(groupName);
+        if (set == null) {
+            set = this.dependents.computeIfAbsent(groupName, k -> newDependentSet());
+        }
+        set.add(holder);
+    }
+
+    /**
+     * Gets the holders which inherit (directly or indirectly) from any of the given groups.
+     *
+     * @param groupNames the names of the groups
+     * @return the dependent holders
+     */
+    public Set<PermissionHolder> getDependents(Collection<String> groupNames) {
+        Set<PermissionHolder> result = new HashSet<>();
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+
+        for (String groupName : groupNames) {
+            if (visited.add(groupName)) {
+                queue.add(groupName);
+            }
+        }
+
+        String groupName;
+        while ((groupName = queue.poll()) != null) {
+            Set<PermissionHolder> direct = this.dependents.get(groupName);
+            if (direct == null) {
+                continue;
+            }
+
+            for (PermissionHolder holder : direct) {
+                if (result.add(holder) && holder.getType() == HolderType.GROUP && visited.add(holder.getObjectName())) {
+                    queue.add(holder.getObjectName());
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Invalidates the cached data of the given groups, and of all holders
+     * which inherit from them.
+     *
+     * @param groupNames the names of the groups which have changed
+     */
+    public void invalidateDependents(Collection<String> groupNames) {
+        for (String groupName : groupNames) {
+            Group group = this.plugin.getGroupManager().getIfLoaded(groupName);
+            if (group != null) {
+                group.getCachedData().invalidate();
+            }
+        }
+
+        for (PermissionHolder holder : getDependents(groupNames)) {
+            holder.getCachedData().invalidate();
+        }
+    }
+
+}
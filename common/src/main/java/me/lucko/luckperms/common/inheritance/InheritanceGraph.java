@@ -25,10 +25,13 @@
 
 package me.lucko.luckperms.common.inheritance;
 
+import com.google.common.collect.ImmutableList;
+
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.graph.Graph;
 import me.lucko.luckperms.common.graph.TraversalAlgorithm;
 import me.lucko.luckperms.common.model.Group;
+import me.lucko.luckperms.common.model.HolderType;
 import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
@@ -36,6 +39,7 @@ import net.luckperms.api.node.types.InheritanceNode;
 import net.luckperms.api.query.QueryOptions;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -51,24 +55,49 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
      */
     private final QueryOptions queryOptions;
 
-    public InheritanceGraph(LuckPermsPlugin plugin, QueryOptions queryOptions) {
+    /**
+     * The index to record observed inheritance relationships in.
+     */
+    private final InheritanceDependencyIndex dependencyIndex;
+
+    /**
+     * The cache of resolved traversals.
+     */
+    private final InheritanceTraversalCache traversalCache;
+
+    public InheritanceGraph(LuckPermsPlugin plugin, QueryOptions queryOptions, InheritanceDependencyIndex dependencyIndex, InheritanceTraversalCache traversalCache) {
         this.plugin = plugin;
         this.queryOptions = queryOptions;
+        this.dependencyIndex = dependencyIndex;
+        this.traversalCache = traversalCache;
     }
 
     @Override
     public Iterable<? extends PermissionHolder> successors(PermissionHolder holder) {
+        // the parents of a group only change when the traversal cache is invalidated,
+        // so can be reused until then. (the order for users depends on their primary group)
+        if (holder.getType() == HolderType.GROUP) {
+            int generation = this.traversalCache.getGeneration();
+            return ((Group) holder).getSuccessorCache().get(this.queryOptions, generation, () -> resolveSuccessors(holder));
+        }
+        return resolveSuccessors(holder);
+    }
+
+    private List<Group> resolveSuccessors(PermissionHolder holder) {
         Set<Group> successors = new LinkedHashSet<>();
         for (InheritanceNode n : holder.getOwnInheritanceNodes(this.queryOptions)) {
+            // record the relationship, even if the group isn't loaded yet
+            this.dependencyIndex.recordInheritance(holder, n.getGroupName());
+
             Group g = this.plugin.getGroupManager().getIfLoaded(n.getGroupName());
             if (g != null) {
                 successors.add(g);
             }
         }
 
-        List<Group> successorsSorted = new ArrayList<>(successors);
-        successorsSorted.sort(holder.getInheritanceComparator());
-        return successorsSorted;
+        Group[] successorsSorted = successors.toArray(new Group[0]);
+        Arrays.sort(successorsSorted, holder.getInheritanceComparator());
+        return ImmutableList.copyOf(successorsSorted);
     }
 
     /**
@@ -82,7 +111,12 @@ public class InheritanceGraph implements Graph<PermissionHolder> {
      * @return an iterable
      */
     public Iterable<PermissionHolder> traverse(TraversalAlgorithm algorithm, boolean postTraversalSort, PermissionHolder startNode) {
-        Iterable<PermissionHolder> traversal = traverse(algorithm, startNode);
+        Iterable<PermissionHolder> traversal;
+        if (this.traversalCache.isCacheable(startNode)) {
+            traversal = this.traversalCache.traverse(this, this.queryOptions, algorithm, startNode);
+        } else {
+            traversal = traverse(algorithm, startNode);
+        }
 
         // perform post traversal sort if needed
         if (postTraversalSort) {
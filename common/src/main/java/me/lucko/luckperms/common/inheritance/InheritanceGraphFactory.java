@@ -35,14 +35,26 @@ import net.luckperms.api.query.QueryOptions;
  */
 public class InheritanceGraphFactory {
     private final LuckPermsPlugin plugin;
+    private final InheritanceDependencyIndex dependencyIndex;
+    private final InheritanceTraversalCache traversalCache;
 
     private final InheritanceGraph nonContextualGraph;
     private final InheritanceGraph defaultContextualGraph;
 
     public InheritanceGraphFactory(LuckPermsPlugin plugin) {
         this.plugin = plugin;
-        this.nonContextualGraph = new InheritanceGraph(plugin, QueryOptionsImpl.DEFAULT_NON_CONTEXTUAL);
-        this.defaultContextualGraph = new InheritanceGraph(plugin, QueryOptionsImpl.DEFAULT_CONTEXTUAL);
+        this.dependencyIndex = new InheritanceDependencyIndex(plugin);
+        this.traversalCache = new InheritanceTraversalCache();
+        this.nonContextualGraph = new InheritanceGraph(plugin, QueryOptionsImpl.DEFAULT_NON_CONTEXTUAL, this.dependencyIndex, this.traversalCache);
+        this.defaultContextualGraph = new InheritanceGraph(plugin, QueryOptionsImpl.DEFAULT_CONTEXTUAL, this.dependencyIndex, this.traversalCache);
+    }
+
+    public InheritanceDependencyIndex getDependencyIndex() {
+        return this.dependencyIndex;
+    }
+
+    public InheritanceTraversalCache getTraversalCache() {
+        return this.traversalCache;
     }
 
     public InheritanceGraph getGraph(QueryOptions queryOptions) {
@@ -51,7 +63,7 @@ public class InheritanceGraphFactory {
         } else if (queryOptions == QueryOptionsImpl.DEFAULT_CONTEXTUAL) {
             return this.defaultContextualGraph;
         } else {
-            return new InheritanceGraph(this.plugin, queryOptions);
+            return new InheritanceGraph(this.plugin, queryOptions, this.dependencyIndex, this.traversalCache);
         }
     }
 
@@ -0,0 +1,88 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.inheritance;
+
+import me.lucko.luckperms.common.model.Group;
+
+import net.luckperms.api.query.QueryOptions;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches the direct parents of a {@link Group}, in inheritance order, for the
+ * query options they have recently been resolved in.
+ *
+ * <p>The parents of a group depend only on its own nodes, the groups which are
+ * loaded and their weights - all of which cause the {@link InheritanceTraversalCache}
+ * to be invalidated when they change. Entries are therefore tied to the traversal
+ * cache generation they were resolved in.</p>
+ */
+public final class InheritanceSuccessorCache {
+
+    /**
+     * The maximum number of query options to hold successors for at once.
+     */
+    private static final int MAX_ENTRIES = 16;
+
+    private volatile Entries entries = new Entries(-1);
+
+    /**
+     * Gets the successors for the given query options, resolving them using
+     * the loader if they aren't cached for the given generation.
+     *
+     * @param queryOptions the query options
+     * @param generation the current generation of the traversal cache
+     * @param loader the function to resolve the successors
+     * @return the successors
+     */
+    public List<Group> get(QueryOptions queryOptions, int generation, Supplier<List<Group>> loader) {
+        Entries entries = this.entries;
+        if (entries.generation != generation) {
+            this.entries = entries = new Entries(generation);
+        }
+
+        List<Group> successors = entries.successors.get(queryOptions);
+        if (successors == null) {
+            successors = loader.get();
+            if (entries.successors.size() < MAX_ENTRIES) {
+                entries.successors.putIfAbsent(queryOptions, successors);
+            }
+        }
+        return successors;
+    }
+
+    private static final class Entries {
+        private final int generation;
+        private final Map<QueryOptions, List<Group>> successors = new ConcurrentHashMap<>();
+
+        Entries(int generation) {
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.inheritance;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+
+import me.lucko.luckperms.common.graph.Graph;
+import me.lucko.luckperms.common.graph.TraversalAlgorithm;
+import me.lucko.luckperms.common.model.HolderType;
+import me.lucko.luckperms.common.model.PermissionHolder;
+import me.lucko.luckperms.common.util.CaffeineFactory;
+
+import net.luckperms.api.query.QueryOptions;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded cache of resolved {@link InheritanceGraph} traversals.
+ *
+ * <p>Once the direct parents of a user have been determined, the rest of the traversal
+ * depends only on those parents, as groups can never inherit from users. Traversals
+ * are therefore cached by the users parent groups, so users with the same group
+ * membership share the same precomputed group order.</p>
+ *
+ * <p>The cache must be invalidated whenever a group is changed, loaded or unloaded.</p>
+ */
+public class InheritanceTraversalCache {
+
+    /**
+     * The resolved group orders, keyed by the traversal inputs.
+     */
+    private final Cache<Key, List<PermissionHolder>> cache = CaffeineFactory.newBuilder()
+            .maximumSize(10000)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * Incremented on each invalidation, so traversals which were in progress
+     * at the time can't be returned by later lookups.
+     */
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Gets if traversals starting at the given holder can be cached.
+     *
+     * @param startNode the start node
+     * @return true if cacheable
+     */
+    public boolean isCacheable(PermissionHolder startNode) {
+        // a group could be reached again from its own parents,
+        // so traversals from groups can't be shared
+        return startNode.getType() == HolderType.USER;
+    }
+
+    /**
+     * Traverses the graph from the given start node, using a cached result if possible.
+     *
+     * @param graph the graph
+     * @param queryOptions the query options of the graph
+     * @param algorithm the algorithm to use when traversing
+     * @param startNode the start node, must be {@link #isCacheable(PermissionHolder) cacheable}
+     * @return the traversal
+     */
+    public Iterable<PermissionHolder> traverse(Graph<PermissionHolder> graph, QueryOptions queryOptions, TraversalAlgorithm algorithm, PermissionHolder startNode) {
+        List<PermissionHolder> parents = ImmutableList.copyOf(graph.successors(startNode));
+        if (parents.isEmpty()) {
+            return Collections.singletonList(startNode);
+        }
+
+        Key key = new Key(parents, queryOptions, algorithm, this.generation.get());
+        List<PermissionHolder> groups = this.cache.get(key, k -> resolve(graph, k, startNode));
+
+        // the start node is always first in a pre-order traversal, and last in a post-order one
+        if (algorithm == TraversalAlgorithm.DEPTH_FIRST_POST_ORDER) {
+            return Iterables.concat(groups, Collections.singletonList(startNode));
+        } else {
+            return Iterables.concat(Collections.singletonList(startNode), groups);
+        }
+    }
+
+    private static List<PermissionHolder> resolve(Graph<PermissionHolder> graph, Key key, PermissionHolder startNode) {
+        // traverse using the already determined parents for the start node
+        Graph<PermissionHolder> resolvedGraph = node -> node == startNode ? key.parents : graph.successors(node);
+
+        ImmutableList.Builder<PermissionHolder> groups = ImmutableList.builder();
+        for (PermissionHolder holder : key.algorithm.traverse(resolvedGraph, startNode)) {
+            if (holder != startNode) {
+                groups.add(holder);
+            }
+        }
+        return groups.build();
+    }
+
+    /**
+     * Gets the current generation of the cache.
+     *
+     * <p>The generation changes whenever the cache is invalidated, so can be
+     * used by other caches to detect changes to group data.</p>
+     *
+     * @return the generation
+     */
+    public int getGeneration() {
+        return this.generation.get();
+    }
+
+    /**
+     * Invalidates all cached traversals.
+     */
+    public void invalidate() {
+        this.generation.incrementAndGet();
+        this.cache.invalidateAll();
+    }
+
+    private static final class Key {
+        private final List<PermissionHolder> parents;
+        private final QueryOptions queryOptions;
+        private final TraversalAlgorithm algorithm;
+        private final int generation;
+        private final int hashCode;
+
+        Key(List<PermissionHolder> parents, QueryOptions queryOptions, TraversalAlgorithm algorithm, int generation) {
+            this.parents = parents;
+            this.queryOptions = queryOptions;
+            this.algorithm = algorithm;
+            this.generation = generation;
+            this.hashCode = Objects.hash(parents, queryOptions, algorithm, generation);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return this.generation == other.generation &&
+                    this.algorithm == other.algorithm &&
+                    this.parents.equals(other.parents) &&
+                    this.queryOptions.equals(other.queryOptions);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+}
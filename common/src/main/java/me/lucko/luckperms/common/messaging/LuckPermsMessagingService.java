@@ -32,10 +32,12 @@ import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.cache.BufferedRequest;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.messaging.message.ActionLogMessageImpl;
+import me.lucko.luckperms.common.messaging.message.BatchMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UpdateMessageImpl;
 import me.lucko.luckperms.common.messaging.message.UserUpdateMessageImpl;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.util.Iterators;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 import me.lucko.luckperms.common.util.gson.JObject;
 
@@ -51,18 +53,38 @@ import net.luckperms.api.messenger.message.type.UserUpdateMessage;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public class LuckPermsMessagingService implements InternalMessagingService, IncomingMessageConsumer {
+
+    /** The time user update pings & log entries are collected for before being sent */
+    private static final long BATCH_WINDOW_MILLIS = 100;
+
+    /** The maximum number of user update pings to include in a single message */
+    private static final int MAX_BATCH_USERS = 500;
+
+    /** The maximum number of log entries to include in a single message */
+    private static final int MAX_BATCH_LOG_ENTRIES = 50;
+
     private final LuckPermsPlugin plugin;
     private final Set<UUID> receivedMessages;
     private final PushUpdateBuffer updateBuffer;
 
+    private final Object batchLock = new Object();
+    private Set<UUID> pendingUserUpdates = new LinkedHashSet<>();
+    private List<Action> pendingLogEntries = new ArrayList<>();
+    private boolean batchScheduled = false;
+
     private final MessengerProvider messengerProvider;
     private final Messenger messenger;
 
@@ -119,25 +141,75 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
 
     @Override
     public void pushUserUpdate(User user) {
-        this.plugin.getBootstrap().getScheduler().executeAsync(() -> {
-            UUID requestId = generatePingId();
-            this.plugin.getLogger().info("[Messaging] Sending user ping for '" + user.getPlainDisplayName() + "' with id: " + requestId);
-            this.messenger.sendOutgoingMessage(new UserUpdateMessageImpl(requestId, user.getUniqueId()));
-        });
+        synchronized (this.batchLock) {
+            this.pendingUserUpdates.add(user.getUniqueId());
+            scheduleBatch();
+        }
     }
 
     @Override
     public void pushLog(Action logEntry) {
-        this.plugin.getBootstrap().getScheduler().executeAsync(() -> {
+        synchronized (this.batchLock) {
+            this.pendingLogEntries.add(logEntry);
+            scheduleBatch();
+        }
+    }
+
+    private void scheduleBatch() {
+        // the window starts when the first entry is added, so a constant stream
+        // of changes can't hold back the batch indefinitely
+        if (!this.batchScheduled) {
+            this.batchScheduled = true;
+            this.plugin.getBootstrap().getScheduler().asyncLater(this::sendBatch, BATCH_WINDOW_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sendBatch() {
+        Set<UUID> userUpdates;
+        List<Action> logEntries;
+        synchronized (this.batchLock) {
+            userUpdates = this.pendingUserUpdates;
+            logEntries = this.pendingLogEntries;
+            this.pendingUserUpdates = new LinkedHashSet<>();
+            this.pendingLogEntries = new ArrayList<>();
+            this.batchScheduled = false;
+        }
+
+        boolean pushLogEntries = this.plugin.getConfiguration().get(ConfigKeys.PUSH_LOG_ENTRIES);
+
+        Iterator<List<UUID>> userBatches = Iterators.divideIterable(userUpdates, MAX_BATCH_USERS).iterator();
+        Iterator<List<Action>> logBatches = Iterators.divideIterable(logEntries, MAX_BATCH_LOG_ENTRIES).iterator();
+        while (userBatches.hasNext() || logBatches.hasNext()) {
+            List<UUID> users = userBatches.hasNext() ? userBatches.next() : Collections.emptyList();
+            List<Action> logBatch = logBatches.hasNext() ? logBatches.next() : Collections.emptyList();
+
+            // the id is generated up front, so the publish event is given the id of the
+            // message the entry will actually be sent in
             UUID requestId = generatePingId();
 
-            if (this.plugin.getEventDispatcher().dispatchLogNetworkPublish(!this.plugin.getConfiguration().get(ConfigKeys.PUSH_LOG_ENTRIES), requestId, logEntry)) {
-                return;
+            List<Action> log = new ArrayList<>(logBatch.size());
+            for (Action logEntry : logBatch) {
+                if (!this.plugin.getEventDispatcher().dispatchLogNetworkPublish(!pushLogEntries, requestId, logEntry)) {
+                    log.add(logEntry);
+                }
             }
 
-            this.plugin.getLogger().info("[Messaging] Sending log with id: " + requestId);
-            this.messenger.sendOutgoingMessage(new ActionLogMessageImpl(requestId, logEntry));
-        });
+            // a lone entry is sent using its own message type, so it can still be understood by
+            // servers which don't support batches yet
+            if (users.size() + log.size() == 1) {
+                if (!users.isEmpty()) {
+                    UUID uniqueId = users.get(0);
+                    this.plugin.getLogger().info("[Messaging] Sending user ping for '" + uniqueId + "' with id: " + requestId);
+                    this.messenger.sendOutgoingMessage(new UserUpdateMessageImpl(requestId, uniqueId));
+                } else {
+                    this.plugin.getLogger().info("[Messaging] Sending log with id: " + requestId);
+                    this.messenger.sendOutgoingMessage(new ActionLogMessageImpl(requestId, log.get(0)));
+                }
+            } else if (!users.isEmpty() || !log.isEmpty()) {
+                this.plugin.getLogger().info("[Messaging] Sending batch of " + users.size() + " user pings and " + log.size() + " log entries with id: " + requestId);
+                this.messenger.sendOutgoingMessage(new BatchMessageImpl(requestId, users, log));
+            }
+        }
     }
 
     @Override
@@ -151,7 +223,8 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
         // determine if the message can be handled by us
         boolean valid = message instanceof UpdateMessage ||
                 message instanceof UserUpdateMessage ||
-                message instanceof ActionLogMessage;
+                message instanceof ActionLogMessage ||
+                message instanceof BatchMessageImpl;
 
         // instead of throwing an exception here, just return false
         // it means an instance of LP can gracefully handle messages it doesn't
@@ -203,6 +276,9 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
             case ActionLogMessageImpl.TYPE:
                 decoded = ActionLogMessageImpl.decode(content, id);
                 break;
+            case BatchMessageImpl.TYPE:
+                decoded = BatchMessageImpl.decode(content, id);
+                break;
             default:
                 // gracefully return if we just don't recognise the type
                 return false;
@@ -258,6 +334,35 @@ public class LuckPermsMessagingService implements InternalMessagingService, Inco
 
             this.plugin.getEventDispatcher().dispatchLogReceive(msg.getId(), msg.getAction());
             this.plugin.getLogDispatcher().dispatchFromRemote((LoggedAction) msg.getAction());
+        } else if (message instanceof BatchMessageImpl) {
+            BatchMessageImpl msg = (BatchMessageImpl) message;
+
+            for (Action logEntry : msg.getLogEntries()) {
+                this.plugin.getEventDispatcher().dispatchLogReceive(msg.getId(), logEntry);
+                this.plugin.getLogDispatcher().dispatchFromRemote((LoggedAction) logEntry);
+            }
+
+            Set<UUID> users = msg.getUserUniqueIds().stream()
+                    .filter(uuid -> this.plugin.getUserManager().isLoaded(uuid))
+                    .collect(Collectors.toSet());
+
+            if (users.isEmpty()) {
+                return;
+            }
+
+            this.plugin.getLogger().info("[Messaging] Received batch update ping for " + users.size() + " users with id: " + msg.getId());
+
+            if (this.plugin.getEventDispatcher().dispatchNetworkPreSync(false, msg.getId())) {
+                return;
+            }
+
+            // reload all of the users at once
+            this.plugin.getStorage().reloadUsers(users).whenComplete((loaded, ex) -> {
+                if (ex != null) {
+                    this.plugin.getLogger().warn("[Messaging] Unable to reload users for batch update with id: " + msg.getId());
+                    ex.printStackTrace();
+                }
+            });
         } else {
             throw new IllegalArgumentException("Unknown message type: " + message.getClass().getName());
         }
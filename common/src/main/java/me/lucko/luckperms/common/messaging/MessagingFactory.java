@@ -28,12 +28,14 @@ package me.lucko.luckperms.common.messaging;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.config.LuckPermsConfiguration;
 import me.lucko.luckperms.common.messaging.redis.RedisMessenger;
+import me.lucko.luckperms.common.messaging.sql.PostgresMessenger;
 import me.lucko.luckperms.common.messaging.sql.SqlMessenger;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.sql.SqlStorage;
 import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.MariaDbConnectionFactory;
 import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.MySqlConnectionFactory;
+import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.PostgreConnectionFactory;
 
 import net.luckperms.api.messenger.IncomingMessageConsumer;
 import net.luckperms.api.messenger.Messenger;
@@ -66,7 +68,7 @@ public class MessagingFactory<P extends LuckPermsPlugin> {
                 for (StorageImplementation implementation : this.plugin.getStorage().getImplementations()) {
                     if (implementation instanceof SqlStorage) {
                         SqlStorage sql = (SqlStorage) implementation;
-                        if (sql.getConnectionFactory() instanceof MySqlConnectionFactory || sql.getConnectionFactory() instanceof MariaDbConnectionFactory) {
+                        if (sql.getConnectionFactory() instanceof MySqlConnectionFactory || sql.getConnectionFactory() instanceof MariaDbConnectionFactory || sql.getConnectionFactory() instanceof PostgreConnectionFactory) {
                             messagingType = "sql";
                             break;
                         }
@@ -154,6 +156,11 @@ public class MessagingFactory<P extends LuckPermsPlugin> {
                         sql.init();
                         return sql;
                     }
+                    if (storage.getConnectionFactory() instanceof PostgreConnectionFactory) {
+                        PostgresMessenger postgres = new PostgresMessenger(getPlugin(), storage, incomingMessageConsumer);
+                        postgres.init();
+                        return postgres;
+                    }
                 }
             }
 
@@ -0,0 +1,124 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging.message;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import me.lucko.luckperms.common.actionlog.ActionJsonSerializer;
+import me.lucko.luckperms.common.messaging.LuckPermsMessagingService;
+import me.lucko.luckperms.common.util.gson.JArray;
+import me.lucko.luckperms.common.util.gson.JObject;
+
+import net.luckperms.api.actionlog.Action;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * A message which combines a number of user update pings and log entries
+ * into a single message.
+ */
+public class BatchMessageImpl extends AbstractMessage {
+    public static final String TYPE = "batch";
+
+    public static BatchMessageImpl decode(@Nullable JsonElement content, UUID id) {
+        if (content == null) {
+            throw new IllegalStateException("Missing content");
+        }
+
+        JsonObject object = content.getAsJsonObject();
+
+        ImmutableSet.Builder<UUID> userUuids = ImmutableSet.builder();
+        JsonElement usersElement = object.get("userUuids");
+        if (usersElement != null) {
+            for (JsonElement element : usersElement.getAsJsonArray()) {
+                userUuids.add(UUID.fromString(element.getAsString()));
+            }
+        }
+
+        ImmutableList.Builder<Action> logEntries = ImmutableList.builder();
+        JsonElement logElement = object.get("log");
+        if (logElement != null) {
+            for (JsonElement element : logElement.getAsJsonArray()) {
+                logEntries.add(ActionJsonSerializer.deserialize(element));
+            }
+        }
+
+        return new BatchMessageImpl(id, userUuids.build(), logEntries.build());
+    }
+
+    private final Set<UUID> userUuids;
+    private final List<Action> logEntries;
+
+    public BatchMessageImpl(UUID id, Collection<UUID> userUuids, Collection<? extends Action> logEntries) {
+        super(id);
+        this.userUuids = ImmutableSet.copyOf(userUuids);
+        this.logEntries = ImmutableList.copyOf(logEntries);
+    }
+
+    /**
+     * Gets the unique ids of the users which should be reloaded.
+     *
+     * @return the users
+     */
+    public @NonNull Set<UUID> getUserUniqueIds() {
+        return this.userUuids;
+    }
+
+    /**
+     * Gets the log entries contained in the batch.
+     *
+     * @return the log entries
+     */
+    public @NonNull List<Action> getLogEntries() {
+        return this.logEntries;
+    }
+
+    @Override
+    public @NonNull String asEncodedString() {
+        return LuckPermsMessagingService.encodeMessageAsString(
+                TYPE, getId(), new JObject()
+                        .consume(o -> {
+                            if (!this.userUuids.isEmpty()) {
+                                o.add("userUuids", new JArray().consume(arr -> this.userUuids.forEach(uuid -> arr.add(uuid.toString()))));
+                            }
+                            if (!this.logEntries.isEmpty()) {
+                                o.add("log", new JArray().consume(arr -> this.logEntries.forEach(entry -> arr.add(ActionJsonSerializer.serialize(entry)))));
+                            }
+                        })
+                        .toJson()
+        );
+    }
+
+}
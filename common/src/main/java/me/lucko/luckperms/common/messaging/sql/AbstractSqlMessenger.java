@@ -48,7 +48,7 @@ public abstract class AbstractSqlMessenger implements Messenger {
     private long lastId = -1;
 
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    private boolean closed = false;
+    private volatile boolean closed = false;
 
     protected AbstractSqlMessenger(IncomingMessageConsumer consumer) {
         this.consumer = consumer;
@@ -60,22 +60,10 @@ public abstract class AbstractSqlMessenger implements Messenger {
     public void init() throws SQLException {
         try (Connection c = getConnection()) {
             // init table
-            String createStatement = "CREATE TABLE IF NOT EXISTS `" + getTableName() + "` (`id` INT AUTO_INCREMENT NOT NULL, `time` TIMESTAMP NOT NULL, `msg` TEXT NOT NULL, PRIMARY KEY (`id`)) DEFAULT CHARSET = utf8mb4";
-            try (Statement s = c.createStatement()) {
-                try {
-                    s.execute(createStatement);
-                } catch (SQLException e) {
-                    if (e.getMessage().contains("Unknown character set")) {
-                        // try again
-                        s.execute(createStatement.replace("utf8mb4", "utf8"));
-                    } else {
-                        throw e;
-                    }
-                }
-            }
+            createTable(c);
 
             // pull last id
-            try (PreparedStatement ps = c.prepareStatement("SELECT MAX(`id`) as `latest` FROM `" + getTableName() + "`")) {
+            try (PreparedStatement ps = c.prepareStatement(getLatestIdStatement())) {
                 try (ResultSet rs = ps.executeQuery()) {
                     if (rs.next()) {
                         this.lastId = rs.getLong("latest");
@@ -85,6 +73,71 @@ public abstract class AbstractSqlMessenger implements Messenger {
         }
     }
 
+    protected void createTable(Connection c) throws SQLException {
+        String createStatement = "CREATE TABLE IF NOT EXISTS `" + getTableName() + "` (`id` INT AUTO_INCREMENT NOT NULL, `time` TIMESTAMP NOT NULL, `msg` TEXT NOT NULL, PRIMARY KEY (`id`), INDEX (`time`)) DEFAULT CHARSET = utf8mb4";
+        try (Statement s = c.createStatement()) {
+            try {
+                s.execute(createStatement);
+            } catch (SQLException e) {
+                if (e.getMessage().contains("Unknown character set")) {
+                    // try again
+                    s.execute(createStatement.replace("utf8mb4", "utf8"));
+                } else {
+                    throw e;
+                }
+            }
+        }
+
+        // tables created by older versions don't have an index on the time column
+        if (!isTimeIndexed(c)) {
+            try (Statement s = c.createStatement()) {
+                s.execute("CREATE INDEX `" + getTableName() + "_time` ON `" + getTableName() + "` (`time`)");
+            } catch (SQLException e) {
+                // another server may have just created it
+                if (!isTimeIndexed(c)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    protected String getLatestIdStatement() {
+        return "SELECT MAX(`id`) as `latest` FROM `" + getTableName() + "`";
+    }
+
+    protected String getInsertStatement() {
+        return "INSERT INTO `" + getTableName() + "` (`time`, `msg`) VALUES(NOW(), ?)";
+    }
+
+    protected String getPollStatement() {
+        return "SELECT `id`, `msg` FROM `" + getTableName() + "` WHERE `id` > ? AND `time` > DATE_SUB(NOW(), INTERVAL 30 SECOND)";
+    }
+
+    protected String getHousekeepingStatement() {
+        return "DELETE FROM `" + getTableName() + "` WHERE `time` < DATE_SUB(NOW(), INTERVAL 60 SECOND)";
+    }
+
+    /**
+     * Called after a message has been inserted, using the same connection.
+     *
+     * @param c the connection
+     * @throws SQLException if an exception occurs
+     */
+    protected void afterInsert(Connection c) throws SQLException {
+
+    }
+
+    private boolean isTimeIndexed(Connection c) throws SQLException {
+        try (ResultSet rs = c.getMetaData().getIndexInfo(c.getCatalog(), null, getTableName(), false, true)) {
+            while (rs.next()) {
+                if (rs.getShort("ORDINAL_POSITION") == 1 && "time".equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
     @Override
     public void sendOutgoingMessage(@NonNull OutgoingMessage outgoingMessage) {
         this.lock.readLock().lock();
@@ -94,10 +147,11 @@ public abstract class AbstractSqlMessenger implements Messenger {
         }
 
         try (Connection c = getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement("INSERT INTO `" + getTableName() + "` (`time`, `msg`) VALUES(NOW(), ?)")) {
+            try (PreparedStatement ps = c.prepareStatement(getInsertStatement())) {
                 ps.setString(1, outgoingMessage.asEncodedString());
                 ps.execute();
             }
+            afterInsert(c);
         } catch (SQLException e) {
             e.printStackTrace();
         } finally {
@@ -105,15 +159,21 @@ public abstract class AbstractSqlMessenger implements Messenger {
         }
     }
 
-    public void pollMessages() {
+    /**
+     * Reads and processes any new messages.
+     *
+     * @return true if any messages were received
+     */
+    public boolean pollMessages() {
         this.lock.readLock().lock();
         if (this.closed) {
             this.lock.readLock().unlock();
-            return;
+            return false;
         }
 
+        boolean received = false;
         try (Connection c = getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement("SELECT `id`, `msg` FROM `" + getTableName() + "` WHERE `id` > ? AND (NOW() - `time` < 30)")) {
+            try (PreparedStatement ps = c.prepareStatement(getPollStatement())) {
                 ps.setLong(1, this.lastId);
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
@@ -122,6 +182,7 @@ public abstract class AbstractSqlMessenger implements Messenger {
 
                         String message = rs.getString("msg");
                         this.consumer.consumeIncomingMessageAsString(message);
+                        received = true;
                     }
                 }
             }
@@ -130,6 +191,7 @@ public abstract class AbstractSqlMessenger implements Messenger {
         } finally {
             this.lock.readLock().unlock();
         }
+        return received;
     }
 
     public void runHousekeeping() {
@@ -140,7 +202,7 @@ public abstract class AbstractSqlMessenger implements Messenger {
         }
 
         try (Connection c = getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement("DELETE FROM `" + getTableName() + "` WHERE (NOW() - `time` > 60)")) {
+            try (PreparedStatement ps = c.prepareStatement(getHousekeepingStatement())) {
                 ps.execute();
             }
         } catch (SQLException e) {
@@ -150,6 +212,10 @@ public abstract class AbstractSqlMessenger implements Messenger {
         }
     }
 
+    protected boolean isClosed() {
+        return this.closed;
+    }
+
     @Override
     public void close() {
         this.lock.writeLock().lock();
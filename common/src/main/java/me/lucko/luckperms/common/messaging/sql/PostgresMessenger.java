@@ -0,0 +1,237 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.messaging.sql;
+
+import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
+import me.lucko.luckperms.common.storage.implementation.sql.SqlStorage;
+import me.lucko.luckperms.common.storage.implementation.sql.connection.hikari.HikariConnectionFactory;
+
+import net.luckperms.api.messenger.IncomingMessageConsumer;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An implementation of the SQL messenger for PostgreSQL, which uses
+ * {@code LISTEN}/{@code NOTIFY} to find out about new messages instead of
+ * polling the messages table.
+ *
+ * <p>Messages are still written to the table (the payload of a notification
+ * is limited in size, and the table allows missed messages to be caught up
+ * on after reconnecting), but the table is only read when a notification is
+ * received, plus an infrequent safety poll.</p>
+ */
+public class PostgresMessenger extends AbstractSqlMessenger {
+
+    /** The maximum time to wait for a notification before checking again */
+    private static final int NOTIFICATION_WAIT_MILLIS = 500;
+
+    /** The interval between safety polls of the messages table */
+    private static final long SAFETY_POLL_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final LuckPermsPlugin plugin;
+    private final SqlStorage sqlStorage;
+
+    private Thread listenerThread;
+    private SchedulerTask housekeepingTask;
+
+    public PostgresMessenger(LuckPermsPlugin plugin, SqlStorage sqlStorage, IncomingMessageConsumer consumer) {
+        super(consumer);
+        this.plugin = plugin;
+        this.sqlStorage = sqlStorage;
+    }
+
+    @Override
+    public void init() {
+        try {
+            super.init();
+        } catch (SQLException e) {
+            throw new RuntimeException(e);
+        }
+
+        // the listener blocks for as long as the messenger is open, so it gets its own thread
+        // rather than holding on to one of the scheduler's workers
+        Thread thread = new Thread(this::listen, "luckperms-postgres-messenger");
+        thread.setDaemon(true);
+        thread.start();
+        this.listenerThread = thread;
+
+        this.housekeepingTask = this.plugin.getBootstrap().getScheduler().asyncRepeating(this::runHousekeeping, 30, TimeUnit.SECONDS);
+    }
+
+    private void listen() {
+        while (!isClosed()) {
+            // the connection is held for as long as we're listening, so open one
+            // outside of the pool instead of taking a pooled connection away for good
+            try (Connection pgConnection = getConnectionFactory().createUnpooledConnection()) {
+                try (Statement s = pgConnection.createStatement()) {
+                    s.execute("LISTEN \"" + getChannelName() + "\"");
+                }
+
+                // the connection is a PgConnection - the driver isn't on the compile classpath, so use reflection
+                NotificationReader reader = NotificationReader.create(pgConnection);
+
+                // catch up on anything sent whilst we weren't listening
+                pollMessages();
+                long lastPoll = System.currentTimeMillis();
+
+                while (!isClosed()) {
+                    boolean notified = reader.await(pgConnection, NOTIFICATION_WAIT_MILLIS);
+
+                    long now = System.currentTimeMillis();
+                    if (notified || now - lastPoll >= SAFETY_POLL_INTERVAL_MILLIS) {
+                        pollMessages();
+                        lastPoll = now;
+                    }
+                }
+            } catch (Exception e) {
+                if (isClosed()) {
+                    return;
+                }
+
+                this.plugin.getLogger().warn("Postgres messenger listener connection was lost, reconnecting in 5 seconds: " + e.getMessage());
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void createTable(Connection c) throws SQLException {
+        try (Statement s = c.createStatement()) {
+            s.execute("CREATE TABLE IF NOT EXISTS \"" + getTableName() + "\" (\"id\" SERIAL PRIMARY KEY NOT NULL, \"time\" TIMESTAMP NOT NULL, \"msg\" TEXT NOT NULL)");
+            s.execute("CREATE INDEX IF NOT EXISTS \"" + getTableName() + "_time\" ON \"" + getTableName() + "\" (\"time\")");
+        }
+    }
+
+    @Override
+    protected String getLatestIdStatement() {
+        return "SELECT MAX(\"id\") as \"latest\" FROM \"" + getTableName() + "\"";
+    }
+
+    @Override
+    protected String getInsertStatement() {
+        return "INSERT INTO \"" + getTableName() + "\" (\"time\", \"msg\") VALUES(NOW(), ?)";
+    }
+
+    @Override
+    protected String getPollStatement() {
+        return "SELECT \"id\", \"msg\" FROM \"" + getTableName() + "\" WHERE \"id\" > ? AND \"time\" > NOW() - INTERVAL '30 seconds'";
+    }
+
+    @Override
+    protected String getHousekeepingStatement() {
+        return "DELETE FROM \"" + getTableName() + "\" WHERE \"time\" < NOW() - INTERVAL '60 seconds'";
+    }
+
+    @Override
+    protected void afterInsert(Connection c) throws SQLException {
+        try (Statement s = c.createStatement()) {
+            s.execute("NOTIFY \"" + getChannelName() + "\"");
+        }
+    }
+
+    @Override
+    public void close() {
+        super.close();
+
+        SchedulerTask task = this.housekeepingTask;
+        if (task != null) {
+            task.cancel();
+        }
+        this.housekeepingTask = null;
+
+        // wake the listener if it's waiting to reconnect
+        Thread thread = this.listenerThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        this.listenerThread = null;
+    }
+
+    @Override
+    protected Connection getConnection() throws SQLException {
+        return this.sqlStorage.getConnectionFactory().getConnection();
+    }
+
+    private HikariConnectionFactory getConnectionFactory() {
+        return (HikariConnectionFactory) this.sqlStorage.getConnectionFactory();
+    }
+
+    @Override
+    protected String getTableName() {
+        return this.sqlStorage.getStatementProcessor().apply("{prefix}messenger");
+    }
+
+    private String getChannelName() {
+        return getTableName();
+    }
+
+    /**
+     * Reads notifications from a PgConnection.
+     *
+     * <p>Newer driver versions can block until a notification arrives. Older
+     * versions only return notifications which have already been received,
+     * so we have to check periodically.</p>
+     */
+    private static final class NotificationReader {
+        static NotificationReader create(Connection pgConnection) throws NoSuchMethodException {
+            Class<?> clazz = pgConnection.getClass();
+            try {
+                return new NotificationReader(clazz.getMethod("getNotifications", int.class), true);
+            } catch (NoSuchMethodException e) {
+                return new NotificationReader(clazz.getMethod("getNotifications"), false);
+            }
+        }
+
+        private final Method getNotifications;
+        private final boolean blocking;
+
+        private NotificationReader(Method getNotifications, boolean blocking) {
+            this.getNotifications = getNotifications;
+            this.blocking = blocking;
+        }
+
+        boolean await(Connection pgConnection, int timeoutMillis) throws Exception {
+            Object[] notifications;
+            if (this.blocking) {
+                notifications = (Object[]) this.getNotifications.invoke(pgConnection, timeoutMillis);
+            } else {
+                Thread.sleep(timeoutMillis);
+                notifications = (Object[]) this.getNotifications.invoke(pgConnection);
+            }
+            return notifications != null && notifications.length != 0;
+        }
+    }
+}
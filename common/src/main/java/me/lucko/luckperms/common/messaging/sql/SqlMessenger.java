@@ -26,20 +26,31 @@
 package me.lucko.luckperms.common.messaging.sql;
 
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
-import me.lucko.luckperms.common.plugin.scheduler.SchedulerAdapter;
 import me.lucko.luckperms.common.plugin.scheduler.SchedulerTask;
 import me.lucko.luckperms.common.storage.implementation.sql.SqlStorage;
 
 import net.luckperms.api.messenger.IncomingMessageConsumer;
+import net.luckperms.api.messenger.message.OutgoingMessage;
+
+import org.checkerframework.checker.nullness.qual.NonNull;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.concurrent.TimeUnit;
 
 public class SqlMessenger extends AbstractSqlMessenger {
+
+    /** The interval between polls shortly after messages have been sent or received */
+    private static final long MIN_POLL_INTERVAL_MILLIS = 500;
+
+    /** The interval between polls once the messenger has been idle for a while */
+    private static final long MAX_POLL_INTERVAL_MILLIS = 5000;
+
     private final LuckPermsPlugin plugin;
     private final SqlStorage sqlStorage;
 
+    private volatile long pollInterval = MIN_POLL_INTERVAL_MILLIS;
+
     private SchedulerTask pollTask;
     private SchedulerTask housekeepingTask;
 
@@ -58,26 +69,67 @@ public class SqlMessenger extends AbstractSqlMessenger {
         }
 
         // schedule poll tasks
-        SchedulerAdapter scheduler = this.plugin.getBootstrap().getScheduler();
-        this.pollTask = scheduler.asyncRepeating(this::pollMessages, 1, TimeUnit.SECONDS);
-        this.housekeepingTask = scheduler.asyncRepeating(this::runHousekeeping, 30, TimeUnit.SECONDS);
+        schedulePoll(this.pollInterval);
+        this.housekeepingTask = this.plugin.getBootstrap().getScheduler().asyncRepeating(this::runHousekeeping, 30, TimeUnit.SECONDS);
     }
 
-    @Override
-    public void close() {
-        SchedulerTask task = this.pollTask;
-        if (task != null) {
-            task.cancel();
+    private void poll() {
+        // poll more frequently after activity, and back off while nothing is happening
+        if (pollMessages()) {
+            this.pollInterval = MIN_POLL_INTERVAL_MILLIS;
+        } else {
+            this.pollInterval = Math.min(this.pollInterval * 2, MAX_POLL_INTERVAL_MILLIS);
+        }
+
+        schedulePoll(this.pollInterval);
+    }
+
+    /**
+     * Schedules the next poll, replacing the one which is currently scheduled.
+     *
+     * @param delayMillis the delay before polling
+     */
+    private synchronized void schedulePoll(long delayMillis) {
+        if (isClosed()) {
+            return;
         }
-        task = this.housekeepingTask;
+
+        SchedulerTask task = this.pollTask;
         if (task != null) {
             task.cancel();
         }
+        this.pollTask = this.plugin.getBootstrap().getScheduler().asyncLater(this::poll, delayMillis, TimeUnit.MILLISECONDS);
+    }
 
-        this.pollTask = null;
-        this.housekeepingTask = null;
+    @Override
+    public void sendOutgoingMessage(@NonNull OutgoingMessage outgoingMessage) {
+        super.sendOutgoingMessage(outgoingMessage);
 
+        // other servers are likely to respond to changes made here. if the messenger
+        // has backed off, the next poll could be a while away, so bring it forward
+        if (this.pollInterval != MIN_POLL_INTERVAL_MILLIS) {
+            this.pollInterval = MIN_POLL_INTERVAL_MILLIS;
+            schedulePoll(MIN_POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    @Override
+    public void close() {
         super.close();
+
+        synchronized (this) {
+            SchedulerTask task = this.pollTask;
+            if (task != null) {
+                task.cancel();
+            }
+            task = this.housekeepingTask;
+            if (task != null) {
+                task.cancel();
+            }
+
+            this.pollTask = null;
+            this.housekeepingTask = null;
+        }
     }
 
     @Override
@@ -29,14 +29,17 @@ import me.lucko.luckperms.common.api.implementation.ApiGroup;
 import me.lucko.luckperms.common.cache.Cache;
 import me.lucko.luckperms.common.cacheddata.GroupCachedDataManager;
 import me.lucko.luckperms.common.config.ConfigKeys;
+import me.lucko.luckperms.common.inheritance.InheritanceSuccessorCache;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.Node;
 import net.luckperms.api.node.types.DisplayNameNode;
 import net.luckperms.api.query.QueryOptions;
 
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.OptionalInt;
 
@@ -58,6 +61,11 @@ public class Group extends PermissionHolder {
      */
     private final Cache<Optional<String>> displayNameCache = new DisplayNameCache();
 
+    /**
+     * Caches the groups this group directly inherits from
+     */
+    private final InheritanceSuccessorCache successorCache = new InheritanceSuccessorCache();
+
     /**
      * The groups data cache instance
      */
@@ -78,6 +86,17 @@ public class Group extends PermissionHolder {
         // invalidate our caches
         this.weightCache.invalidate();
         this.displayNameCache.invalidate();
+        getPlugin().getInheritanceGraphFactory().getTraversalCache().invalidate();
+    }
+
+    @Override
+    protected void invalidateCache(DataType dataType, Collection<? extends Node> changedNodes) {
+        super.invalidateCache(dataType, changedNodes);
+
+        // invalidate our caches
+        this.weightCache.invalidate();
+        this.displayNameCache.invalidate();
+        getPlugin().getInheritanceGraphFactory().getTraversalCache().invalidate();
     }
 
     // name getters
@@ -94,6 +113,10 @@ public class Group extends PermissionHolder {
         return this.apiProxy;
     }
 
+    public InheritanceSuccessorCache getSuccessorCache() {
+        return this.successorCache;
+    }
+
     @Override
     public QueryOptions getQueryOptions() {
         return getPlugin().getContextManager().getStaticQueryOptions();
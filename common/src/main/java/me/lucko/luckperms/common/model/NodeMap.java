@@ -25,12 +25,16 @@
 
 package me.lucko.luckperms.common.model;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.ImmutableSortedSet;
 
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.ContextSetComparator;
 import me.lucko.luckperms.common.node.comparator.NodeComparator;
 import me.lucko.luckperms.common.node.comparator.NodeWithContextComparator;
+import me.lucko.luckperms.common.util.Difference;
 
 import net.luckperms.api.context.ContextSatisfyMode;
 import net.luckperms.api.context.ContextSet;
@@ -49,19 +53,16 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
-import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
@@ -72,11 +73,18 @@ import java.util.stream.Stream;
  * the value. The keys (context sets) are ordered according to their weight {@link ContextSetComparator}, and the values
  * are ordered according to the priority of the node, according to {@link NodeComparator}.</p>
  *
+ * <p>The contents of the map are held in an immutable {@link Snapshot}, which is replaced
+ * whenever the map is modified. Readers always see a consistent view of the map without
+ * taking a copy or a lock, and writers only need to rebuild the context buckets which
+ * they change - untouched buckets are shared with the previous snapshot.</p>
+ *
+ * <p>The result of filtering a snapshot by a set of {@link QueryOptions} is cached
+ * alongside it, so repeated lookups in the same contexts don't need to re-test
+ * each bucket.</p>
+ *
  * <p>Each holder has two of these maps, one for enduring and transient nodes.</p>
  */
 public final class NodeMap {
-    private static final Function<ImmutableContextSet, SortedSet<Node>> VALUE_SET_SUPPLIER = k -> new ConcurrentSkipListSet<>(NodeComparator.reverse());
-    private static final Function<ImmutableContextSet, SortedSet<InheritanceNode>> INHERITANCE_VALUE_SET_SUPPLIER = k -> new ConcurrentSkipListSet<>(NodeComparator.reverse());
 
     /**
      * The holder which this map is for
@@ -84,35 +92,39 @@ public final class NodeMap {
     private final PermissionHolder holder;
 
     /**
-     * The backing data map.
+     * The current contents of the map.
+     */
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    /**
+     * Lock held by writers whilst they build & publish a new {@link #snapshot}
+     */
+    private final Object writeLock = new Object();
+
+    /**
+     * The changes made to the map since its contents were last known to match
+     * the data held in storage, or null if this is not known.
      *
-     * <p>Nodes are mapped by the result of {@link Node#getContexts()}, and keys are sorted by the weight of the
-     * ContextSet. ContextSets are ordered first by the presence of a server key, then by the presence of a world
-     * key, and finally by the overall size of the set. Nodes are ordered according to the priority rules
-     * defined in {@link NodeComparator}.</p>
+     * <p>Changes are only tracked once a storage implementation has called
+     * {@link #discardChanges()}.</p>
      */
-    private final SortedMap<ImmutableContextSet, SortedSet<Node>> map = new ConcurrentSkipListMap<>(ContextSetComparator.reverse());
+    private volatile Difference<Node> changes = null;
 
     /**
-     * Copy of {@link #map} which only contains group nodes
-     * @see InheritanceNode
+     * Lock guarding {@link #changes}
      */
-    private final SortedMap<ImmutableContextSet, SortedSet<InheritanceNode>> inheritanceMap = new ConcurrentSkipListMap<>(ContextSetComparator.reverse());
+    private final Object changesLock = new Object();
 
     NodeMap(PermissionHolder holder) {
         this.holder = holder;
     }
 
     public boolean isEmpty() {
-        return this.map.isEmpty();
+        return this.snapshot.map.isEmpty();
     }
 
     public int size() {
-        int size = 0;
-        for (SortedSet<Node> values : this.map.values()) {
-            size += values.size();
-        }
-        return size;
+        return this.snapshot.size;
     }
 
     public List<Node> asList() {
@@ -134,16 +146,12 @@ public final class NodeMap {
     }
 
     public ImmutableSet<Node> asImmutableSet() {
-        ImmutableSet.Builder<Node> builder = ImmutableSet.builder();
-        for (SortedSet<Node> values : this.map.values()) {
-            builder.addAll(values);
-        }
-        return builder.build();
+        return this.snapshot.asImmutableSet();
     }
 
     public Map<ImmutableContextSet, Collection<Node>> asMap() {
         Map<ImmutableContextSet, Collection<Node>> map = new HashMap<>();
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : this.map.entrySet()) {
+        for (Map.Entry<ImmutableContextSet, ImmutableSortedSet<Node>> e : this.snapshot.map.entrySet()) {
             map.put(e.getKey(), new ArrayList<>(e.getValue()));
         }
         return map;
@@ -169,7 +177,7 @@ public final class NodeMap {
 
     public Map<ImmutableContextSet, Collection<InheritanceNode>> inheritanceAsMap() {
         Map<ImmutableContextSet, Collection<InheritanceNode>> map = new HashMap<>();
-        for (Map.Entry<ImmutableContextSet, SortedSet<InheritanceNode>> e : this.inheritanceMap.entrySet()) {
+        for (Map.Entry<ImmutableContextSet, ImmutableSortedSet<InheritanceNode>> e : this.snapshot.inheritanceMap.entrySet()) {
             map.put(e.getKey(), new ArrayList<>(e.getValue()));
         }
         return map;
@@ -196,272 +204,643 @@ public final class NodeMap {
         return this.holder.getPlugin().getConfiguration().get(ConfigKeys.CONTEXT_SATISFY_MODE);
     }
 
+    /**
+     * Gets if the given node would be included by {@link #copyTo(Collection, QueryOptions)}
+     * and {@link #forEach(QueryOptions, Consumer)}, were it held in this map.
+     *
+     * @param node the node
+     * @param filter the query options
+     * @return true if the node applies
+     */
+    public boolean isApplicable(Node node, QueryOptions filter) {
+        ImmutableContextSet contextSet = node.getContexts();
+        if (!filter.satisfies(contextSet, defaultSatisfyMode())) {
+            return false;
+        }
+
+        if (normalNodesExcludeTest(filter, contextSet)) {
+            return node instanceof InheritanceNode && node.getValue() && inheritanceNodesIncludeTest(filter, contextSet);
+        }
+        return true;
+    }
+
     public void forEach(Consumer<? super Node> consumer) {
-        for (SortedSet<Node> values : this.map.values()) {
+        for (ImmutableSortedSet<Node> values : this.snapshot.map.values()) {
             values.forEach(consumer);
         }
     }
 
     public void forEach(QueryOptions filter, Consumer<? super Node> consumer) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : this.map.entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
-                continue;
-            }
-
-            if (normalNodesExcludeTest(filter, e.getKey())) {
-                if (inheritanceNodesIncludeTest(filter, e.getKey())) {
-                    // only copy inheritance nodes.
-                    SortedSet<InheritanceNode> inheritanceNodes = this.inheritanceMap.get(e.getKey());
-                    if (inheritanceNodes != null) {
-                        inheritanceNodes.forEach(consumer);
-                    }
-                }
-            } else {
-                e.getValue().forEach(consumer);
-            }
-        }
+        filteredView(filter).nodes.forEach(consumer);
     }
 
     public void copyTo(Collection<? super Node> collection) {
-        for (SortedSet<Node> values : this.map.values()) {
+        for (ImmutableSortedSet<Node> values : this.snapshot.map.values()) {
             collection.addAll(values);
         }
     }
 
     public void copyTo(Collection<? super Node> collection, QueryOptions filter) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : this.map.entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
-                continue;
-            }
-
-            if (normalNodesExcludeTest(filter, e.getKey())) {
-                if (inheritanceNodesIncludeTest(filter, e.getKey())) {
-                    // only copy inheritance nodes.
-                    SortedSet<InheritanceNode> inheritanceNodes = this.inheritanceMap.get(e.getKey());
-                    if (inheritanceNodes != null) {
-                        collection.addAll(inheritanceNodes);
-                    }
-                }
-            } else {
-                collection.addAll(e.getValue());
-            }
-        }
+        collection.addAll(filteredView(filter).nodes);
     }
 
     public <T extends Node> void copyTo(Collection<? super T> collection, NodeType<T> type, QueryOptions filter) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<Node>> e : this.map.entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
-                continue;
-            }
-
-            if (normalNodesExcludeTest(filter, e.getKey())) {
-                if (inheritanceNodesIncludeTest(filter, e.getKey())) {
-                    // only copy inheritance nodes.
-                    if (type == NodeType.INHERITANCE) {
-                        SortedSet<InheritanceNode> inheritanceNodes = this.inheritanceMap.get(e.getKey());
-                        if (inheritanceNodes != null) {
-                            for (InheritanceNode node : inheritanceNodes) {
-                                collection.add(type.cast(node));
-                            }
-                        }
-                    }
-                }
-            } else {
-                for (Node node : e.getValue()) {
-                    if (type.matches(node)) {
-                        collection.add(type.cast(node));
-                    }
-                }
+        for (Node node : filteredView(filter).nodes) {
+            if (type.matches(node)) {
+                collection.add(type.cast(node));
             }
         }
     }
 
     public void copyInheritanceNodesTo(Collection<? super InheritanceNode> collection) {
-        for (SortedSet<InheritanceNode> values : this.inheritanceMap.values()) {
+        for (ImmutableSortedSet<InheritanceNode> values : this.snapshot.inheritanceMap.values()) {
             collection.addAll(values);
         }
     }
 
     public void copyInheritanceNodesTo(Collection<? super InheritanceNode> collection, QueryOptions filter) {
-        for (Map.Entry<ImmutableContextSet, SortedSet<InheritanceNode>> e : this.inheritanceMap.entrySet()) {
-            if (!filter.satisfies(e.getKey(), defaultSatisfyMode())) {
-                continue;
-            }
+        collection.addAll(filteredView(filter).inheritanceNodes);
+    }
 
-            if (inheritanceNodesIncludeTest(filter, e.getKey())) {
-                collection.addAll(e.getValue());
-            }
-        }
+    private FilteredView filteredView(QueryOptions filter) {
+        return this.snapshot.filteredView(filter, defaultSatisfyMode());
     }
 
     public Collection<Node> nodesInContext(ContextSet context) {
-        final SortedSet<Node> values = this.map.get(context.immutableCopy());
+        final ImmutableSortedSet<Node> values = this.snapshot.map.get(context.immutableCopy());
         if (values == null) {
             return ImmutableSet.of();
         }
-        return new ArrayList<>(values);
+        return values;
     }
 
     public Collection<InheritanceNode> inheritanceNodesInContext(ContextSet context) {
-        final SortedSet<InheritanceNode> values = this.inheritanceMap.get(context.immutableCopy());
+        final ImmutableSortedSet<InheritanceNode> values = this.snapshot.inheritanceMap.get(context.immutableCopy());
         if (values == null) {
             return ImmutableSet.of();
         }
-        return new ArrayList<>(values);
+        return values;
     }
 
-    private Node localise(Node node) {
-        Optional<InheritanceOriginMetadata> metadata = node.getMetadata(InheritanceOriginMetadata.KEY);
-        if (metadata.isPresent() && metadata.get().getOrigin().equals(this.holder.getIdentifier())) {
-            return node;
+    /**
+     * Marks the current contents of the map as matching the data held in storage,
+     * and starts tracking the changes made from this point onwards.
+     */
+    public void discardChanges() {
+        synchronized (this.changesLock) {
+            this.changes = new Difference<>();
         }
-
-        return node.toBuilder().withMetadata(InheritanceOriginMetadata.KEY, new InheritanceOrigin(this.holder.getIdentifier())).build();
     }
 
-    void add(Node node) {
-        ImmutableContextSet context = node.getContexts();
-        Node n = localise(node);
-
-        SortedSet<Node> nodesInContext = this.map.computeIfAbsent(context, VALUE_SET_SUPPLIER);
-        nodesInContext.removeIf(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
-        nodesInContext.add(n);
+    /**
+     * Marks the data held in storage as unknown, and stops tracking changes.
+     */
+    public void invalidateChanges() {
+        synchronized (this.changesLock) {
+            this.changes = null;
+        }
+    }
 
-        if (n instanceof InheritanceNode) {
-            SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.computeIfAbsent(context, INHERITANCE_VALUE_SET_SUPPLIER);
-            inheritanceNodesInContext.removeIf(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
-            if (n.getValue()) {
-                inheritanceNodesInContext.add((InheritanceNode) n);
+    /**
+     * Gets the changes made to the map since its contents last matched the
+     * data held in storage, and starts tracking a new set of changes from this point.
+     *
+     * <p>If the caller fails to write the returned changes to storage, it
+     * should call {@link #invalidateChanges()}.</p>
+     *
+     * @return the changes, or null if they are not known and a full comparison is required
+     */
+    public @Nullable Difference<Node> exportChanges() {
+        synchronized (this.changesLock) {
+            Difference<Node> changes = this.changes;
+            if (changes != null) {
+                this.changes = new Difference<>();
             }
+            return changes;
         }
     }
 
-    void remove(Node node) {
-        ImmutableContextSet context = node.getContexts();
-        SortedSet<Node> nodesInContext = this.map.get(context);
-        if (nodesInContext != null) {
-            nodesInContext.removeIf(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
+    private void recordAddition(Node node) {
+        if (this.changes == null) {
+            return;
+        }
+        synchronized (this.changesLock) {
+            if (this.changes != null) {
+                this.changes.recordAddition(node);
+            }
         }
+    }
 
-        if (node instanceof InheritanceNode) {
-            SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.get(context);
-            if (inheritanceNodesInContext != null) {
-                inheritanceNodesInContext.removeIf(e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE));
+    private void recordRemoval(Node node) {
+        if (this.changes == null) {
+            return;
+        }
+        synchronized (this.changesLock) {
+            if (this.changes != null) {
+                this.changes.recordRemoval(node);
             }
         }
     }
 
-    private void removeExact(Node node) {
-        ImmutableContextSet context = node.getContexts();
-        SortedSet<Node> nodesInContext = this.map.get(context);
-        if (nodesInContext != null) {
-            nodesInContext.remove(node);
+    private Node localise(Node node) {
+        Optional<InheritanceOriginMetadata> metadata = node.getMetadata(InheritanceOriginMetadata.KEY);
+        if (metadata.isPresent() && metadata.get().getOrigin().equals(this.holder.getIdentifier())) {
+            return node;
         }
 
-        if (node instanceof InheritanceNode && node.getValue()) {
-            SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.get(context);
-            if (inheritanceNodesInContext != null) {
-                inheritanceNodesInContext.remove(node);
-            }
+        return node.toBuilder().withMetadata(InheritanceOriginMetadata.KEY, new InheritanceOrigin(this.holder.getIdentifier())).build();
+    }
+
+    void add(Node node) {
+        synchronized (this.writeLock) {
+            Mutation mutation = new Mutation(this.snapshot);
+            mutation.add(node);
+            this.snapshot = mutation.build();
+        }
+    }
+
+    void remove(Node node) {
+        synchronized (this.writeLock) {
+            Mutation mutation = new Mutation(this.snapshot);
+            mutation.remove(node);
+            this.snapshot = mutation.build();
         }
     }
 
     void replace(Node node, Node previous) {
-        removeExact(previous);
-        add(node);
+        synchronized (this.writeLock) {
+            Mutation mutation = new Mutation(this.snapshot);
+            mutation.removeExact(previous);
+            mutation.add(node);
+            this.snapshot = mutation.build();
+        }
     }
 
     void clear() {
-        this.map.clear();
-        this.inheritanceMap.clear();
+        synchronized (this.writeLock) {
+            Mutation mutation = new Mutation(this.snapshot);
+            mutation.clear();
+            this.snapshot = mutation.build();
+        }
     }
 
     void clear(ContextSet contextSet) {
-        ImmutableContextSet context = contextSet.immutableCopy();
-        this.map.remove(context);
-        this.inheritanceMap.remove(context);
+        synchronized (this.writeLock) {
+            Mutation mutation = new Mutation(this.snapshot);
+            mutation.clear(contextSet.immutableCopy());
+            this.snapshot = mutation.build();
+        }
     }
 
     void setContent(Iterable<? extends Node> set) {
-        this.map.clear();
-        this.inheritanceMap.clear();
-        mergeContent(set);
+        synchronized (this.writeLock) {
+            Mutation mutation = new Mutation(this.snapshot);
+            mutation.clear();
+            for (Node n : set) {
+                mutation.add(n);
+            }
+            this.snapshot = mutation.build();
+        }
     }
 
     void setContent(Stream<? extends Node> stream) {
-        this.map.clear();
-        this.inheritanceMap.clear();
-        mergeContent(stream);
+        synchronized (this.writeLock) {
+            Mutation mutation = new Mutation(this.snapshot);
+            mutation.clear();
+            stream.forEach(mutation::add);
+            this.snapshot = mutation.build();
+        }
     }
 
     void mergeContent(Iterable<? extends Node> set) {
-        for (Node n : set) {
-            add(n);
+        synchronized (this.writeLock) {
+            Mutation mutation = new Mutation(this.snapshot);
+            for (Node n : set) {
+                mutation.add(n);
+            }
+            this.snapshot = mutation.build();
         }
     }
 
     void mergeContent(Stream<? extends Node> stream) {
-        stream.forEach(this::add);
+        synchronized (this.writeLock) {
+            Mutation mutation = new Mutation(this.snapshot);
+            stream.forEach(mutation::add);
+            this.snapshot = mutation.build();
+        }
     }
 
     boolean removeIf(Predicate<? super Node> predicate) {
-        boolean success = false;
-        for (SortedSet<Node> valueSet : this.map.values()) {
-            if (valueSet.removeIf(predicate)) {
-                success = true;
-            }
-        }
-        for (SortedSet<InheritanceNode> valueSet : this.inheritanceMap.values()) {
-            valueSet.removeIf(predicate);
+        synchronized (this.writeLock) {
+            Mutation mutation = new Mutation(this.snapshot);
+            boolean success = mutation.removeIf(predicate);
+            this.snapshot = mutation.build();
+            return success;
         }
-        return success;
     }
 
     boolean removeIf(ContextSet contextSet, Predicate<? super Node> predicate) {
-        ImmutableContextSet context = contextSet.immutableCopy();
+        synchronized (this.writeLock) {
+            Mutation mutation = new Mutation(this.snapshot);
+            boolean success = mutation.removeIf(contextSet.immutableCopy(), predicate);
+            this.snapshot = mutation.build();
+            return success;
+        }
+    }
 
-        boolean success = false;
+    boolean auditTemporaryNodes(@Nullable Set<? super Node> removed) {
+        synchronized (this.writeLock) {
+            Mutation mutation = new Mutation(this.snapshot);
+            boolean work = mutation.removeExpired(removed);
+            this.snapshot = mutation.build();
+            return work;
+        }
+    }
 
-        SortedSet<Node> nodesInContext = this.map.get(context);
-        if (nodesInContext != null) {
-            success = nodesInContext.removeIf(predicate);
+    /**
+     * An immutable snapshot of the contents of a {@link NodeMap}.
+     */
+    private static final class Snapshot {
+        private static final int MAX_FILTERED_VIEWS = 16;
+
+        private static final Snapshot EMPTY = new Snapshot(
+                ImmutableSortedMap.<ImmutableContextSet, ImmutableSortedSet<Node>>orderedBy(ContextSetComparator.reverse()).build(),
+                ImmutableSortedMap.<ImmutableContextSet, ImmutableSortedSet<InheritanceNode>>orderedBy(ContextSetComparator.reverse()).build()
+        );
+
+        /**
+         * The nodes in the map.
+         *
+         * <p>Nodes are mapped by the result of {@link Node#getContexts()}, and keys are sorted by the weight of the
+         * ContextSet. ContextSets are ordered first by the presence of a server key, then by the presence of a world
+         * key, and finally by the overall size of the set. Nodes are ordered according to the priority rules
+         * defined in {@link NodeComparator}.</p>
+         */
+        private final ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<Node>> map;
+
+        /**
+         * Copy of {@link #map} which only contains group nodes
+         * @see InheritanceNode
+         */
+        private final ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<InheritanceNode>> inheritanceMap;
+
+        /**
+         * The total number of nodes in the map
+         */
+        private final int size;
+
+        /**
+         * All of the nodes in the map as a flat set, calculated lazily
+         */
+        private ImmutableSet<Node> set = null;
+
+        /**
+         * Cached results of filtering this snapshot by a set of query options
+         */
+        private final Map<QueryOptions, FilteredView> filteredViews = new ConcurrentHashMap<>();
+
+        Snapshot(ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<Node>> map, ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<InheritanceNode>> inheritanceMap) {
+            this.map = map;
+            this.inheritanceMap = inheritanceMap;
+
+            int size = 0;
+            for (ImmutableSortedSet<Node> values : map.values()) {
+                size += values.size();
+            }
+            this.size = size;
         }
 
-        SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.get(context);
-        if (inheritanceNodesInContext != null) {
-            inheritanceNodesInContext.removeIf(predicate);
+        ImmutableSet<Node> asImmutableSet() {
+            // racy, but the result is immutable & always the same
+            ImmutableSet<Node> set = this.set;
+            if (set == null) {
+                ImmutableSet.Builder<Node> builder = ImmutableSet.builder();
+                for (ImmutableSortedSet<Node> values : this.map.values()) {
+                    builder.addAll(values);
+                }
+                this.set = set = builder.build();
+            }
+            return set;
         }
 
-        return success;
+        FilteredView filteredView(QueryOptions filter, ContextSatisfyMode satisfyMode) {
+            FilteredView view = this.filteredViews.get(filter);
+            if (view != null && view.satisfyMode == satisfyMode) {
+                return view;
+            }
+
+            view = new FilteredView(this, filter, satisfyMode);
+
+            // the snapshot is discarded as soon as the map changes, but bound the number of
+            // views held in case the holder is queried with lots of different contexts
+            if (this.filteredViews.size() < MAX_FILTERED_VIEWS || this.filteredViews.containsKey(filter)) {
+                this.filteredViews.put(filter, view);
+            }
+            return view;
+        }
     }
 
-    boolean auditTemporaryNodes(@Nullable Set<? super Node> removed) {
-        boolean work = false;
+    /**
+     * The nodes in a {@link Snapshot} which apply for a given set of query options,
+     * pre-merged in the order they would be iterated.
+     */
+    private static final class FilteredView {
+        private final ContextSatisfyMode satisfyMode;
+
+        /**
+         * The nodes which would be included by {@link NodeMap#copyTo(Collection, QueryOptions)}
+         */
+        private final ImmutableList<Node> nodes;
+
+        /**
+         * The nodes which would be included by {@link NodeMap#copyInheritanceNodesTo(Collection, QueryOptions)}
+         */
+        private final ImmutableList<InheritanceNode> inheritanceNodes;
+
+        FilteredView(Snapshot snapshot, QueryOptions filter, ContextSatisfyMode satisfyMode) {
+            this.satisfyMode = satisfyMode;
 
-        for (SortedSet<Node> valueSet : this.map.values()) {
-            Iterator<Node> it = valueSet.iterator();
-            while (it.hasNext()) {
-                Node entry = it.next();
-                if (!entry.hasExpired()) {
+            ImmutableList.Builder<Node> nodes = ImmutableList.builder();
+            for (Map.Entry<ImmutableContextSet, ImmutableSortedSet<Node>> e : snapshot.map.entrySet()) {
+                if (!filter.satisfies(e.getKey(), satisfyMode)) {
                     continue;
                 }
 
-                // remove
+                if (normalNodesExcludeTest(filter, e.getKey())) {
+                    if (inheritanceNodesIncludeTest(filter, e.getKey())) {
+                        // only copy inheritance nodes.
+                        ImmutableSortedSet<InheritanceNode> inheritanceNodes = snapshot.inheritanceMap.get(e.getKey());
+                        if (inheritanceNodes != null) {
+                            nodes.addAll(inheritanceNodes);
+                        }
+                    }
+                } else {
+                    nodes.addAll(e.getValue());
+                }
+            }
+            this.nodes = nodes.build();
+
+            ImmutableList.Builder<InheritanceNode> inheritanceNodes = ImmutableList.builder();
+            for (Map.Entry<ImmutableContextSet, ImmutableSortedSet<InheritanceNode>> e : snapshot.inheritanceMap.entrySet()) {
+                if (!filter.satisfies(e.getKey(), satisfyMode)) {
+                    continue;
+                }
+
+                if (inheritanceNodesIncludeTest(filter, e.getKey())) {
+                    inheritanceNodes.addAll(e.getValue());
+                }
+            }
+            this.inheritanceNodes = inheritanceNodes.build();
+        }
+    }
+
+    /**
+     * Applies changes to a {@link Snapshot}, producing a new one.
+     *
+     * <p>Buckets are only copied when they are first modified.</p>
+     */
+    private final class Mutation {
+        private final Snapshot base;
+        private final BucketEditor<Node> nodes;
+        private final BucketEditor<InheritanceNode> inheritanceNodes;
+
+        Mutation(Snapshot base) {
+            this.base = base;
+            this.nodes = new BucketEditor<>(base.map);
+            this.inheritanceNodes = new BucketEditor<>(base.inheritanceMap);
+        }
+
+        void add(Node node) {
+            ImmutableContextSet context = node.getContexts();
+            Node n = localise(node);
+
+            Predicate<Node> matches = e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE);
+            this.nodes.removeIf(context, matches, NodeMap.this::recordRemoval);
+            this.nodes.edit(context).add(n);
+            recordAddition(n);
+
+            if (n instanceof InheritanceNode) {
+                this.inheritanceNodes.removeIf(context, matches, null);
+                if (n.getValue()) {
+                    this.inheritanceNodes.edit(context).add((InheritanceNode) n);
+                }
+            }
+        }
+
+        void remove(Node node) {
+            ImmutableContextSet context = node.getContexts();
+
+            Predicate<Node> matches = e -> e.equals(node, NodeEqualityPredicate.IGNORE_EXPIRY_TIME_AND_VALUE);
+            this.nodes.removeIf(context, matches, NodeMap.this::recordRemoval);
+
+            if (node instanceof InheritanceNode) {
+                this.inheritanceNodes.removeIf(context, matches, null);
+            }
+        }
+
+        void removeExact(Node node) {
+            ImmutableContextSet context = node.getContexts();
+            if (this.nodes.remove(context, node)) {
+                recordRemoval(node);
+            }
+
+            if (node instanceof InheritanceNode && node.getValue()) {
+                this.inheritanceNodes.remove(context, node);
+            }
+        }
+
+        void clear() {
+            if (NodeMap.this.changes != null) {
+                this.nodes.forEach(NodeMap.this::recordRemoval);
+            }
+            this.nodes.clear();
+            this.inheritanceNodes.clear();
+        }
+
+        void clear(ImmutableContextSet context) {
+            SortedSet<Node> removed = this.nodes.current(context);
+            if (removed != null) {
+                removed.forEach(NodeMap.this::recordRemoval);
+            }
+            this.nodes.clear(context);
+            this.inheritanceNodes.clear(context);
+        }
+
+        boolean removeIf(Predicate<? super Node> predicate) {
+            boolean success = this.nodes.removeIf(predicate, NodeMap.this::recordRemoval);
+            this.inheritanceNodes.removeIf(predicate, null);
+            return success;
+        }
+
+        boolean removeIf(ImmutableContextSet context, Predicate<? super Node> predicate) {
+            boolean success = this.nodes.removeIf(context, predicate, NodeMap.this::recordRemoval);
+            this.inheritanceNodes.removeIf(context, predicate, null);
+            return success;
+        }
+
+        boolean removeExpired(@Nullable Set<? super Node> removed) {
+            return this.nodes.removeIf(Node::hasExpired, entry -> {
                 if (removed != null) {
                     removed.add(entry);
                 }
                 if (entry instanceof InheritanceNode && entry.getValue()) {
-                    SortedSet<InheritanceNode> inheritanceNodesInContext = this.inheritanceMap.get(entry.getContexts());
-                    if (inheritanceNodesInContext != null) {
-                        inheritanceNodesInContext.remove(entry);
+                    this.inheritanceNodes.remove(entry.getContexts(), entry);
+                }
+                recordRemoval(entry);
+            });
+        }
+
+        Snapshot build() {
+            ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<Node>> map = this.nodes.build();
+            ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<InheritanceNode>> inheritanceMap = this.inheritanceNodes.build();
+            if (map == this.base.map && inheritanceMap == this.base.inheritanceMap) {
+                return this.base;
+            }
+            return new Snapshot(map, inheritanceMap);
+        }
+    }
+
+    /**
+     * Tracks modifications to the context buckets in a snapshot map.
+     *
+     * @param <N> the node type
+     */
+    private static final class BucketEditor<N extends Node> {
+        private final ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<N>> base;
+        private final Map<ImmutableContextSet, SortedSet<N>> edited = new HashMap<>();
+        private boolean cleared = false;
+
+        BucketEditor(ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<N>> base) {
+            this.base = base;
+        }
+
+        /**
+         * Gets the current contents of a bucket, without copying it.
+         *
+         * @param context the context
+         * @return the bucket, or null if there are no nodes in the context
+         */
+        @Nullable SortedSet<N> current(ImmutableContextSet context) {
+            SortedSet<N> edited = this.edited.get(context);
+            if (edited != null || this.cleared) {
+                return edited;
+            }
+            return this.base.get(context);
+        }
+
+        /**
+         * Gets a modifiable copy of a bucket.
+         *
+         * @param context the context
+         * @return the bucket
+         */
+        SortedSet<N> edit(ImmutableContextSet context) {
+            return this.edited.computeIfAbsent(context, c -> {
+                SortedSet<N> set = new TreeSet<>(NodeComparator.reverse());
+                ImmutableSortedSet<N> existing = this.cleared ? null : this.base.get(c);
+                if (existing != null) {
+                    set.addAll(existing);
+                }
+                return set;
+            });
+        }
+
+        Set<ImmutableContextSet> contexts() {
+            Set<ImmutableContextSet> contexts = new HashSet<>(this.edited.keySet());
+            if (!this.cleared) {
+                contexts.addAll(this.base.keySet());
+            }
+            return contexts;
+        }
+
+        void forEach(Consumer<? super N> consumer) {
+            for (ImmutableContextSet context : contexts()) {
+                SortedSet<N> values = current(context);
+                if (values != null) {
+                    values.forEach(consumer);
+                }
+            }
+        }
+
+        boolean remove(ImmutableContextSet context, Node node) {
+            SortedSet<N> values = current(context);
+            if (values == null || !values.contains(node)) {
+                return false;
+            }
+            return edit(context).remove(node);
+        }
+
+        boolean removeIf(ImmutableContextSet context, Predicate<? super N> predicate, @Nullable Consumer<? super N> removedCallback) {
+            SortedSet<N> values = current(context);
+            if (values == null) {
+                return false;
+            }
+
+            // avoid copying the bucket unless something is actually going to be removed
+            List<N> toRemove = null;
+            for (N node : values) {
+                if (predicate.test(node)) {
+                    if (toRemove == null) {
+                        toRemove = new ArrayList<>();
                     }
+                    toRemove.add(node);
+                }
+            }
+            if (toRemove == null) {
+                return false;
+            }
+
+            SortedSet<N> edit = edit(context);
+            for (N node : toRemove) {
+                edit.remove(node);
+                if (removedCallback != null) {
+                    removedCallback.accept(node);
+                }
+            }
+            return true;
+        }
+
+        boolean removeIf(Predicate<? super N> predicate, @Nullable Consumer<? super N> removedCallback) {
+            boolean success = false;
+            for (ImmutableContextSet context : contexts()) {
+                if (removeIf(context, predicate, removedCallback)) {
+                    success = true;
                 }
-                it.remove();
-                work = true;
             }
+            return success;
         }
 
-        return work;
+        void clear() {
+            this.cleared = true;
+            this.edited.clear();
+        }
+
+        void clear(ImmutableContextSet context) {
+            if (current(context) != null) {
+                this.edited.put(context, new TreeSet<>(NodeComparator.reverse()));
+            }
+        }
+
+        ImmutableSortedMap<ImmutableContextSet, ImmutableSortedSet<N>> build() {
+            if (!this.cleared && this.edited.isEmpty()) {
+                return this.base;
+            }
+
+            ImmutableSortedMap.Builder<ImmutableContextSet, ImmutableSortedSet<N>> builder = ImmutableSortedMap.orderedBy(ContextSetComparator.reverse());
+            if (!this.cleared) {
+                for (Map.Entry<ImmutableContextSet, ImmutableSortedSet<N>> e : this.base.entrySet()) {
+                    if (!this.edited.containsKey(e.getKey())) {
+                        builder.put(e);
+                    }
+                }
+            }
+            for (Map.Entry<ImmutableContextSet, SortedSet<N>> e : this.edited.entrySet()) {
+                if (!e.getValue().isEmpty()) {
+                    builder.put(e.getKey(), ImmutableSortedSet.copyOfSorted(e.getValue()));
+                }
+            }
+            return builder.build();
+        }
     }
 
 }
@@ -38,6 +38,10 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.query.DataSelector;
 
 import net.luckperms.api.context.ContextSet;
+import net.luckperms.api.event.LuckPermsEvent;
+import net.luckperms.api.event.node.NodeAddEvent;
+import net.luckperms.api.event.node.NodeClearEvent;
+import net.luckperms.api.event.node.NodeRemoveEvent;
 import net.luckperms.api.model.data.DataMutateResult;
 import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.model.data.TemporaryNodeMergeStrategy;
@@ -57,6 +61,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
@@ -236,6 +241,21 @@ public abstract class PermissionHolder {
         getPlugin().getEventDispatcher().dispatchDataRecalculate(this);
     }
 
+    /**
+     * Invalidates the holders cached data following the addition or removal
+     * of the given nodes.
+     *
+     * <p>Unlike {@link #invalidateCache()}, this only recalculates the data
+     * affected by the change.</p>
+     *
+     * @param dataType the data type the nodes were changed in
+     * @param changedNodes the nodes which were added or removed
+     */
+    protected void invalidateCache(DataType dataType, Collection<? extends Node> changedNodes) {
+        getCachedData().invalidate(dataType, changedNodes);
+        getPlugin().getEventDispatcher().dispatchDataRecalculate(this);
+    }
+
     public void setNodes(DataType type, Iterable<? extends Node> set) {
         getData(type).setContent(set);
         invalidateCache();
@@ -255,6 +275,24 @@ public abstract class PermissionHolder {
         return DataSelector.select(queryOptions, getIdentifier());
     }
 
+    /**
+     * Gets if the given node, held in the given data type, would be included
+     * when resolving data for the given {@link QueryOptions}.
+     *
+     * @param dataType the data type
+     * @param node the node
+     * @param queryOptions the query options
+     * @return true if the node applies
+     */
+    public boolean isApplicable(DataType dataType, Node node, QueryOptions queryOptions) {
+        for (DataType type : queryOrder(queryOptions)) {
+            if (type == dataType) {
+                return getData(dataType).isApplicable(node, queryOptions);
+            }
+        }
+        return false;
+    }
+
     public List<Node> getOwnNodes(QueryOptions queryOptions) {
         List<Node> nodes = new ArrayList<>();
         for (DataType dataType : queryOrder(queryOptions)) {
@@ -434,19 +472,24 @@ public abstract class PermissionHolder {
     }
 
     private boolean auditTemporaryNodes(DataType dataType) {
-        ImmutableSet<Node> before = getData(dataType).asImmutableSet();
+        NodeMap data = getData(dataType);
         Set<Node> removed = new HashSet<>();
 
-        boolean work = getData(dataType).auditTemporaryNodes(removed);
+        boolean work = data.auditTemporaryNodes(removed);
         if (work) {
             // call event
-            ImmutableSet<Node> after = getData(dataType).asImmutableSet();
-            for (Node r : removed) {
-                this.plugin.getEventDispatcher().dispatchNodeRemove(r, this, dataType, before, after);
+            if (shouldPostEvent(NodeRemoveEvent.class)) {
+                // the state before the audit is just the current state plus the removed nodes,
+                // so there's no need to take a copy up front when nothing has expired
+                ImmutableSet<Node> after = data.asImmutableSet();
+                ImmutableSet<Node> before = ImmutableSet.<Node>builder().addAll(after).addAll(removed).build();
+                for (Node r : removed) {
+                    this.plugin.getEventDispatcher().dispatchNodeRemove(r, this, dataType, before, after);
+                }
             }
 
             // invalidate
-            invalidateCache();
+            invalidateCache(dataType, removed);
         }
         return work;
     }
@@ -479,15 +522,17 @@ public abstract class PermissionHolder {
 
         NodeMap data = getData(dataType);
 
-        ImmutableSet<Node> before = data.asImmutableSet();
+        boolean postEvent = callEvent && shouldPostEvent(NodeAddEvent.class);
+
+        ImmutableSet<Node> before = postEvent ? data.asImmutableSet() : null;
         data.add(node);
-        ImmutableSet<Node> after = data.asImmutableSet();
 
-        if (callEvent) {
+        if (postEvent) {
+            ImmutableSet<Node> after = data.asImmutableSet();
             this.plugin.getEventDispatcher().dispatchNodeAdd(node, this, dataType, before, after);
         }
 
-        invalidateCache();
+        invalidateCache(dataType, Collections.singletonList(node));
 
         return DataMutateResult.SUCCESS;
     }
@@ -520,13 +565,17 @@ public abstract class PermissionHolder {
 
                 if (newNode != null) {
                     // Remove the old Node & add the new one.
-                    ImmutableSet<Node> before = data.asImmutableSet();
+                    boolean postEvent = shouldPostEvent(NodeAddEvent.class);
+
+                    ImmutableSet<Node> before = postEvent ? data.asImmutableSet() : null;
                     data.replace(newNode, otherMatch);
-                    ImmutableSet<Node> after = data.asImmutableSet();
 
-                    this.plugin.getEventDispatcher().dispatchNodeAdd(newNode, this, dataType, before, after);
+                    if (postEvent) {
+                        ImmutableSet<Node> after = data.asImmutableSet();
+                        this.plugin.getEventDispatcher().dispatchNodeAdd(newNode, this, dataType, before, after);
+                    }
 
-                    invalidateCache();
+                    invalidateCache(dataType, Collections.singletonList(newNode));
 
                     return new MergedNodeResult(DataMutateResult.SUCCESS, newNode);
                 }
@@ -544,13 +593,17 @@ public abstract class PermissionHolder {
 
         NodeMap data = getData(dataType);
 
-        ImmutableSet<Node> before = data.asImmutableSet();
+        boolean postEvent = shouldPostEvent(NodeRemoveEvent.class);
+
+        ImmutableSet<Node> before = postEvent ? data.asImmutableSet() : null;
         data.remove(node);
-        ImmutableSet<Node> after = data.asImmutableSet();
 
-        this.plugin.getEventDispatcher().dispatchNodeRemove(node, this, dataType, before, after);
+        if (postEvent) {
+            ImmutableSet<Node> after = data.asImmutableSet();
+            this.plugin.getEventDispatcher().dispatchNodeRemove(node, this, dataType, before, after);
+        }
 
-        invalidateCache();
+        invalidateCache(dataType, Collections.singletonList(node));
 
         return DataMutateResult.SUCCESS;
     }
@@ -570,14 +623,18 @@ public abstract class PermissionHolder {
                     Node newNode = node.toBuilder().expiry(newExpiry).build();
 
                     // Remove the old Node & add the new one.
-                    ImmutableSet<Node> before = data.asImmutableSet();
+                    boolean postEvent = shouldPostEvent(NodeRemoveEvent.class) || shouldPostEvent(NodeAddEvent.class);
+
+                    ImmutableSet<Node> before = postEvent ? data.asImmutableSet() : null;
                     data.replace(newNode, otherMatch);
-                    ImmutableSet<Node> after = data.asImmutableSet();
 
-                    this.plugin.getEventDispatcher().dispatchNodeRemove(otherMatch, this, dataType, before, after);
-                    this.plugin.getEventDispatcher().dispatchNodeAdd(newNode, this, dataType, before, after);
+                    if (postEvent) {
+                        ImmutableSet<Node> after = data.asImmutableSet();
+                        this.plugin.getEventDispatcher().dispatchNodeRemove(otherMatch, this, dataType, before, after);
+                        this.plugin.getEventDispatcher().dispatchNodeAdd(newNode, this, dataType, before, after);
+                    }
 
-                    invalidateCache();
+                    invalidateCache(dataType, Collections.singletonList(newNode));
 
                     return new MergedNodeResult(DataMutateResult.SUCCESS, newNode);
                 }
@@ -590,7 +647,9 @@ public abstract class PermissionHolder {
 
     public boolean removeIf(DataType dataType, @Nullable ContextSet contextSet, Predicate<? super Node> predicate, boolean giveDefault) {
         NodeMap data = getData(dataType);
-        ImmutableSet<Node> before = data.asImmutableSet();
+
+        boolean postEvent = shouldPostEvent(NodeClearEvent.class);
+        ImmutableSet<Node> before = postEvent ? data.asImmutableSet() : null;
 
         if (contextSet == null) {
             if (!data.removeIf(predicate)) {
@@ -606,8 +665,10 @@ public abstract class PermissionHolder {
             getPlugin().getUserManager().giveDefaultIfNeeded((User) this, false);
         }
 
-        ImmutableSet<Node> after = data.asImmutableSet();
-        this.plugin.getEventDispatcher().dispatchNodeClear(this, dataType, before, after);
+        if (postEvent) {
+            ImmutableSet<Node> after = data.asImmutableSet();
+            this.plugin.getEventDispatcher().dispatchNodeClear(this, dataType, before, after);
+        }
 
         invalidateCache();
 
@@ -616,7 +677,9 @@ public abstract class PermissionHolder {
 
     public boolean clearNodes(DataType dataType, ContextSet contextSet, boolean giveDefault) {
         NodeMap data = getData(dataType);
-        ImmutableSet<Node> before = data.asImmutableSet();
+
+        boolean postEvent = shouldPostEvent(NodeClearEvent.class);
+        ImmutableSet<Node> before = postEvent ? data.asImmutableSet() : null;
 
         if (contextSet == null) {
             data.clear();
@@ -628,14 +691,27 @@ public abstract class PermissionHolder {
             getPlugin().getUserManager().giveDefaultIfNeeded((User) this, false);
         }
 
-        ImmutableSet<Node> after = data.asImmutableSet();
-        this.plugin.getEventDispatcher().dispatchNodeClear(this, dataType, before, after);
+        if (postEvent) {
+            ImmutableSet<Node> after = data.asImmutableSet();
+            this.plugin.getEventDispatcher().dispatchNodeClear(this, dataType, before, after);
+        }
 
         invalidateCache();
 
         return true;
     }
 
+    /**
+     * Gets if an event of the given type would be posted, used to avoid taking
+     * before/after snapshots of the data when nothing is listening.
+     *
+     * @param eventClass the event class
+     * @return if the event should be posted
+     */
+    private boolean shouldPostEvent(Class<? extends LuckPermsEvent> eventClass) {
+        return this.plugin.getEventDispatcher().shouldPost(eventClass);
+    }
+
     public OptionalInt getWeight() {
         return OptionalInt.empty();
     }
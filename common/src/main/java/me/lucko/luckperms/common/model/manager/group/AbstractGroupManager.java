@@ -59,6 +59,33 @@ public abstract class AbstractGroupManager<T extends Group> extends AbstractMana
         return null;
     }
 
+    @Override
+    public T getOrMake(String id) {
+        T group = getIfLoaded(id);
+        if (group != null) {
+            return group;
+        }
+
+        // a newly loaded group may be inherited by existing holders
+        group = super.getOrMake(id);
+        group.getPlugin().getInheritanceGraphFactory().getTraversalCache().invalidate();
+        return group;
+    }
+
+    @Override
+    public void unload(String id) {
+        if (id == null) {
+            return;
+        }
+
+        T group = getIfLoaded(id);
+        super.unload(id);
+
+        if (group != null) {
+            group.getPlugin().getInheritanceGraphFactory().getTraversalCache().invalidate();
+        }
+    }
+
     @Override
     protected String sanitizeIdentifier(String s) {
         return s.toLowerCase();
@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.model.manager.user;
 
+import me.lucko.luckperms.common.cacheddata.PermissionCacheInterner;
 import me.lucko.luckperms.common.config.ConfigKeys;
 import me.lucko.luckperms.common.context.contextset.ImmutableContextSetImpl;
 import me.lucko.luckperms.common.model.User;
@@ -51,10 +52,12 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
 
     private final LuckPermsPlugin plugin;
     private final UserHousekeeper housekeeper;
+    private final PermissionCacheInterner permissionCacheInterner;
 
     public AbstractUserManager(LuckPermsPlugin plugin, UserHousekeeper.TimeoutSettings timeoutSettings) {
         this.plugin = plugin;
         this.housekeeper = new UserHousekeeper(plugin, this, timeoutSettings);
+        this.permissionCacheInterner = new PermissionCacheInterner(plugin);
         this.plugin.getBootstrap().getScheduler().asyncRepeating(this.housekeeper, 30, TimeUnit.SECONDS);
     }
 
@@ -135,20 +138,22 @@ public abstract class AbstractUserManager<T extends User> extends AbstractManage
         return this.housekeeper;
     }
 
+    @Override
+    public PermissionCacheInterner getPermissionCacheInterner() {
+        return this.permissionCacheInterner;
+    }
+
     @Override
     public CompletableFuture<Void> loadAllUsers() {
         Set<UUID> ids = new HashSet<>(getAll().keySet());
         ids.addAll(this.plugin.getBootstrap().getOnlinePlayers());
 
-        CompletableFuture<?>[] loadTasks = ids.stream()
-                .map(id -> this.plugin.getStorage().loadUser(id, null))
-                .toArray(CompletableFuture[]::new);
-
-        return CompletableFuture.allOf(loadTasks);
+        return this.plugin.getStorage().loadUsers(ids).thenApply(users -> null);
     }
 
     @Override
     public void invalidateAllUserCaches() {
+        this.permissionCacheInterner.invalidate();
         getAll().values().forEach(u -> u.getCachedData().invalidate());
     }
 
@@ -25,6 +25,7 @@
 
 package me.lucko.luckperms.common.model.manager.user;
 
+import me.lucko.luckperms.common.cacheddata.PermissionCacheInterner;
 import me.lucko.luckperms.common.calculator.PermissionCalculator;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.model.manager.Manager;
@@ -66,6 +67,13 @@ public interface UserManager<T extends User> extends Manager<UUID, User, T> {
      */
     UserHousekeeper getHouseKeeper();
 
+    /**
+     * Gets the instance responsible for sharing permission data between users.
+     *
+     * @return the permission cache interner
+     */
+    PermissionCacheInterner getPermissionCacheInterner();
+
     /**
      * Reloads the data of all *online* users
      */
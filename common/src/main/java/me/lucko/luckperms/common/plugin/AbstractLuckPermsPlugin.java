@@ -194,7 +194,7 @@ public abstract class AbstractLuckPermsPlugin implements LuckPermsPlugin {
         // run an update instantly.
         getLogger().info("Performing initial data load...");
         try {
-            new SyncTask(this).run();
+            this.syncTaskBuffer.requestDirectly();
         } catch (Exception e) {
             e.printStackTrace();
         }
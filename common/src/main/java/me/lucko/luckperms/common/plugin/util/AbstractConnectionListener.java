@@ -27,6 +27,7 @@ package me.lucko.luckperms.common.plugin.util;
 
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.storage.misc.LoginResult;
 
 import net.luckperms.api.model.PlayerSaveResult;
 import net.luckperms.api.model.data.DataType;
@@ -66,8 +67,9 @@ public abstract class AbstractConnectionListener {
         // register with the housekeeper to avoid accidental unloads
         this.plugin.getUserManager().getHouseKeeper().registerUsage(uniqueId);
 
-        // save uuid data.
-        PlayerSaveResult saveResult = this.plugin.getStorage().savePlayerData(uniqueId, username).join();
+        // save uuid data & load the user.
+        LoginResult loginResult = this.plugin.getStorage().loginUser(uniqueId, username).join();
+        PlayerSaveResult saveResult = loginResult.getSaveResult();
 
         // fire UserFirstLogin event
         if (saveResult.includes(PlayerSaveResult.Outcome.CLEAN_INSERT)) {
@@ -99,7 +101,7 @@ public abstract class AbstractConnectionListener {
             this.plugin.getLogger().warn("See here for more info: https://github.com/lucko/LuckPerms/wiki/Network-Installation#pre-setup");
         }
 
-        User user = this.plugin.getStorage().loadUser(uniqueId, username).join();
+        User user = loginResult.getUser();
         if (user == null) {
             throw new NullPointerException("User is null");
         }
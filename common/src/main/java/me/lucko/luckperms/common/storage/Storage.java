@@ -27,15 +27,19 @@ package me.lucko.luckperms.common.storage;
 
 import com.google.common.collect.ImmutableList;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.matcher.ConstraintNodeMatcher;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.storage.StorageExecutor.Lane;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.split.SplitStorage;
+import me.lucko.luckperms.common.storage.misc.LoginResult;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
 import me.lucko.luckperms.common.util.Throwing;
 
@@ -47,6 +51,7 @@ import net.luckperms.api.node.Node;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -54,7 +59,6 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 
 /**
  * Provides a {@link CompletableFuture} based API for interacting with a {@link StorageImplementation}.
@@ -62,10 +66,12 @@ import java.util.concurrent.CompletionException;
 public class Storage {
     private final LuckPermsPlugin plugin;
     private final StorageImplementation implementation;
+    private final StorageExecutor executor;
 
     public Storage(LuckPermsPlugin plugin, StorageImplementation implementation) {
         this.plugin = plugin;
         this.implementation = implementation;
+        this.executor = new StorageExecutor(plugin.getBootstrap().getScheduler().async());
     }
 
     public StorageImplementation getImplementation() {
@@ -80,30 +86,15 @@ public class Storage {
         }
     }
 
-    private <T> CompletableFuture<T> makeFuture(Callable<T> supplier) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                return supplier.call();
-            } catch (Exception e) {
-                if (e instanceof RuntimeException) {
-                    throw (RuntimeException) e;
-                }
-                throw new CompletionException(e);
-            }
-        }, this.plugin.getBootstrap().getScheduler().async());
-    }
-
-    private CompletableFuture<Void> makeFuture(Throwing.Runnable runnable) {
-        return CompletableFuture.runAsync(() -> {
-            try {
-                runnable.run();
-            } catch (Exception e) {
-                if (e instanceof RuntimeException) {
-                    throw (RuntimeException) e;
-                }
-                throw new CompletionException(e);
-            }
-        }, this.plugin.getBootstrap().getScheduler().async());
+    private <T> CompletableFuture<T> makeFuture(Lane lane, Callable<T> supplier) {
+        return this.executor.submit(lane, supplier);
+    }
+
+    private CompletableFuture<Void> makeFuture(Lane lane, Throwing.Runnable runnable) {
+        return this.executor.submit(lane, () -> {
+            runnable.run();
+            return null;
+        });
     }
 
     public String getName() {
@@ -129,23 +120,29 @@ public class Storage {
     }
 
     public Map<String, String> getMeta() {
-        return this.implementation.getMeta();
+        Map<String, String> meta = new LinkedHashMap<>(this.implementation.getMeta());
+        meta.putAll(this.executor.getMeta());
+        return meta;
     }
 
     public CompletableFuture<Void> logAction(Action entry) {
-        return makeFuture(() -> this.implementation.logAction(entry));
+        return makeFuture(Lane.INTERACTIVE, () -> this.implementation.logAction(entry));
     }
 
     public CompletableFuture<Log> getLog() {
-        return makeFuture(this.implementation::getLog);
+        return makeFuture(Lane.BACKGROUND, this.implementation::getLog);
+    }
+
+    public CompletableFuture<LogPage> getLogPage(ActionFilter filter, int pageNumber, int pageSize) {
+        return makeFuture(Lane.INTERACTIVE, () -> this.implementation.getLogPage(filter, pageNumber, pageSize));
     }
 
     public CompletableFuture<Void> applyBulkUpdate(BulkUpdate bulkUpdate) {
-        return makeFuture(() -> this.implementation.applyBulkUpdate(bulkUpdate));
+        return makeFuture(Lane.BACKGROUND, () -> this.implementation.applyBulkUpdate(bulkUpdate));
     }
 
     public CompletableFuture<User> loadUser(UUID uniqueId, String username) {
-        return makeFuture(() -> {
+        return makeFuture(Lane.INTERACTIVE, () -> {
             User user = this.implementation.loadUser(uniqueId, username);
             if (user != null) {
                 this.plugin.getEventDispatcher().dispatchUserLoad(user);
@@ -154,16 +151,46 @@ public class Storage {
         });
     }
 
+    public CompletableFuture<Map<UUID, User>> loadUsers(Set<UUID> uniqueIds) {
+        return makeFuture(Lane.BACKGROUND, () -> {
+            Map<UUID, User> users = this.implementation.loadUsers(uniqueIds);
+            for (User user : users.values()) {
+                this.plugin.getEventDispatcher().dispatchUserLoad(user);
+            }
+            return users;
+        });
+    }
+
+    /**
+     * Reloads users which are already loaded, in response to a change made
+     * elsewhere on the network.
+     *
+     * <p>Unlike {@link #loadUsers(Set)}, the reload is submitted to the
+     * interactive lane, so it isn't held up behind background work.</p>
+     *
+     * @param uniqueIds the unique ids of the users
+     * @return a future encapsulating the reloaded users
+     */
+    public CompletableFuture<Map<UUID, User>> reloadUsers(Set<UUID> uniqueIds) {
+        return makeFuture(Lane.INTERACTIVE, () -> {
+            Map<UUID, User> users = this.implementation.loadUsers(uniqueIds);
+            for (User user : users.values()) {
+                this.plugin.getEventDispatcher().dispatchUserLoad(user);
+            }
+            return users;
+        });
+    }
+
     public CompletableFuture<Void> saveUser(User user) {
-        return makeFuture(() -> this.implementation.saveUser(user));
+        return makeFuture(Lane.INTERACTIVE, () -> this.implementation.saveUser(user));
     }
 
     public CompletableFuture<Set<UUID>> getUniqueUsers() {
-        return makeFuture(this.implementation::getUniqueUsers);
+        return makeFuture(Lane.BACKGROUND, this.implementation::getUniqueUsers);
     }
 
     public <N extends Node> CompletableFuture<List<NodeEntry<UUID, N>>> searchUserNodes(ConstraintNodeMatcher<N> constraint) {
-        return makeFuture(() -> {
+        return makeFuture(Lane.BACKGROUND, () -> {
             List<NodeEntry<UUID, N>> result = this.implementation.searchUserNodes(constraint);
             result.removeIf(entry -> entry.getNode().hasExpired());
             return ImmutableList.copyOf(result);
@@ -171,7 +198,7 @@ public class Storage {
     }
 
     public CompletableFuture<Group> createAndLoadGroup(String name, CreationCause cause) {
-        return makeFuture(() -> {
+        return makeFuture(Lane.INTERACTIVE, () -> {
             Group group = this.implementation.createAndLoadGroup(name.toLowerCase());
             if (group != null) {
                 this.plugin.getEventDispatcher().dispatchGroupCreate(group, cause);
@@ -181,7 +208,7 @@ public class Storage {
     }
 
     public CompletableFuture<Optional<Group>> loadGroup(String name) {
-        return makeFuture(() -> {
+        return makeFuture(Lane.INTERACTIVE, () -> {
             Optional<Group> group = this.implementation.loadGroup(name.toLowerCase());
             if (group.isPresent()) {
                 this.plugin.getEventDispatcher().dispatchGroupLoad(group.get());
@@ -191,25 +218,25 @@ public class Storage {
     }
 
     public CompletableFuture<Void> loadAllGroups() {
-        return makeFuture(() -> {
+        return makeFuture(Lane.BACKGROUND, () -> {
             this.implementation.loadAllGroups();
             this.plugin.getEventDispatcher().dispatchGroupLoadAll();
         });
     }
 
     public CompletableFuture<Void> saveGroup(Group group) {
-        return makeFuture(() -> this.implementation.saveGroup(group));
+        return makeFuture(Lane.INTERACTIVE, () -> this.implementation.saveGroup(group));
     }
 
     public CompletableFuture<Void> deleteGroup(Group group, DeletionCause cause) {
-        return makeFuture(() -> {
+        return makeFuture(Lane.INTERACTIVE, () -> {
             this.implementation.deleteGroup(group);
             this.plugin.getEventDispatcher().dispatchGroupDelete(group, cause);
         });
     }
 
     public <N extends Node> CompletableFuture<List<NodeEntry<String, N>>> searchGroupNodes(ConstraintNodeMatcher<N> constraint) {
-        return makeFuture(() -> {
+        return makeFuture(Lane.BACKGROUND, () -> {
             List<NodeEntry<String, N>> result = this.implementation.searchGroupNodes(constraint);
             result.removeIf(entry -> entry.getNode().hasExpired());
             return ImmutableList.copyOf(result);
@@ -217,7 +244,7 @@ public class Storage {
     }
 
     public CompletableFuture<Track> createAndLoadTrack(String name, CreationCause cause) {
-        return makeFuture(() -> {
+        return makeFuture(Lane.INTERACTIVE, () -> {
             Track track = this.implementation.createAndLoadTrack(name.toLowerCase());
             if (track != null) {
                 this.plugin.getEventDispatcher().dispatchTrackCreate(track, cause);
@@ -227,7 +254,7 @@ public class Storage {
     }
 
     public CompletableFuture<Optional<Track>> loadTrack(String name) {
-        return makeFuture(() -> {
+        return makeFuture(Lane.INTERACTIVE, () -> {
             Optional<Track> track = this.implementation.loadTrack(name.toLowerCase());
             if (track.isPresent()) {
                 this.plugin.getEventDispatcher().dispatchTrackLoad(track.get());
@@ -237,25 +264,25 @@ public class Storage {
     }
 
     public CompletableFuture<Void> loadAllTracks() {
-        return makeFuture(() -> {
+        return makeFuture(Lane.BACKGROUND, () -> {
             this.implementation.loadAllTracks();
             this.plugin.getEventDispatcher().dispatchTrackLoadAll();
         });
     }
 
     public CompletableFuture<Void> saveTrack(Track track) {
-        return makeFuture(() -> this.implementation.saveTrack(track));
+        return makeFuture(Lane.INTERACTIVE, () -> this.implementation.saveTrack(track));
     }
 
     public CompletableFuture<Void> deleteTrack(Track track, DeletionCause cause) {
-        return makeFuture(() -> {
+        return makeFuture(Lane.INTERACTIVE, () -> {
             this.implementation.deleteTrack(track);
             this.plugin.getEventDispatcher().dispatchTrackDelete(track, cause);
          });
     }
 
     public CompletableFuture<PlayerSaveResult> savePlayerData(UUID uniqueId, String username) {
-        return makeFuture(() -> {
+        return makeFuture(Lane.INTERACTIVE, () -> {
             PlayerSaveResult result = this.implementation.savePlayerData(uniqueId, username);
             if (result != null) {
                 this.plugin.getEventDispatcher().dispatchPlayerDataSave(uniqueId, username, result);
@@ -264,15 +291,40 @@ public class Storage {
         });
     }
 
+    public CompletableFuture<LoginResult> loginUser(UUID uniqueId, String username) {
+        return makeFuture(Lane.LOGIN, () -> {
+            LoginResult result = this.implementation.loginUser(uniqueId, username);
+            if (result.getSaveResult() != null) {
+                this.plugin.getEventDispatcher().dispatchPlayerDataSave(uniqueId, username, result.getSaveResult());
+            }
+            if (result.getUser() != null) {
+                this.plugin.getEventDispatcher().dispatchUserLoad(result.getUser());
+            }
+            return result;
+        });
+    }
+
     public CompletableFuture<Void> deletePlayerData(UUID uniqueId) {
-        return makeFuture(() -> this.implementation.deletePlayerData(uniqueId));
+        return makeFuture(Lane.INTERACTIVE, () -> this.implementation.deletePlayerData(uniqueId));
     }
 
     public CompletableFuture<UUID> getPlayerUniqueId(String username) {
-        return makeFuture(() -> this.implementation.getPlayerUniqueId(username));
+        return makeFuture(Lane.INTERACTIVE, () -> this.implementation.getPlayerUniqueId(username));
     }
 
     public CompletableFuture<String> getPlayerName(UUID uniqueId) {
-        return makeFuture(() -> this.implementation.getPlayerName(uniqueId));
+        return makeFuture(Lane.INTERACTIVE, () -> this.implementation.getPlayerName(uniqueId));
+    }
+
+    public CompletableFuture<Map<String, Long>> getGroupVersions() {
+        return makeFuture(Lane.BACKGROUND, this.implementation::getGroupVersions);
+    }
+
+    public CompletableFuture<Map<String, Long>> getTrackVersions() {
+        return makeFuture(Lane.BACKGROUND, this.implementation::getTrackVersions);
+    }
+
+    public CompletableFuture<Map<UUID, Long>> getUserVersions(Set<UUID> uniqueIds) {
+        return makeFuture(Lane.BACKGROUND, () -> this.implementation.getUserVersions(uniqueIds));
     }
 }
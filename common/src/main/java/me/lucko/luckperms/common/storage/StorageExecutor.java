@@ -0,0 +1,217 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs storage operations on the plugin's async executor, split into
+ * {@link Lane}s by priority.
+ *
+ * <p>Each lane limits how many of its operations can run at once, so long
+ * running background work (exports, bulk updates, searches) can never occupy
+ * the worker threads needed to process logins.</p>
+ */
+public class StorageExecutor {
+
+    /**
+     * The lanes storage operations are submitted to, highest priority first.
+     */
+    public enum Lane {
+
+        /**
+         * Loading the data of players who are logging in
+         */
+        LOGIN("Login", 16, Integer.MAX_VALUE),
+
+        /**
+         * Loads and saves made in response to commands, API calls and data changes
+         */
+        INTERACTIVE("Interactive", 8, Integer.MAX_VALUE),
+
+        /**
+         * Bulk and long running operations, and periodic sync tasks
+         */
+        BACKGROUND("Background", 4, 1000);
+
+        private final String name;
+        private final int concurrency;
+        private final int queueCapacity;
+
+        Lane(String name, int concurrency, int queueCapacity) {
+            this.name = name;
+            this.concurrency = concurrency;
+            this.queueCapacity = queueCapacity;
+        }
+    }
+
+    private final Executor executor;
+    private final Map<Lane, LaneExecutor> lanes = new EnumMap<>(Lane.class);
+
+    public StorageExecutor(Executor executor) {
+        this.executor = executor;
+        for (Lane lane : Lane.values()) {
+            this.lanes.put(lane, new LaneExecutor(lane));
+        }
+    }
+
+    /**
+     * Submits an operation to the given lane.
+     *
+     * <p>The returned future is completed exceptionally with a
+     * {@link RejectedExecutionException} if the lanes queue is full.</p>
+     *
+     * @param lane the lane
+     * @param callable the operation
+     * @param <T> the result type
+     * @return a future encapsulating the result of the operation
+     */
+    public <T> CompletableFuture<T> submit(Lane lane, Callable<T> callable) {
+        Task<T> task = new Task<>(callable);
+        this.lanes.get(lane).submit(task);
+        return task.future;
+    }
+
+    /**
+     * Gets a summary of the current state of each lane.
+     *
+     * @return the lane metrics
+     */
+    public Map<String, String> getMeta() {
+        Map<String, String> meta = new LinkedHashMap<>();
+        for (LaneExecutor lane : this.lanes.values()) {
+            meta.put(lane.lane.name + " Queue", lane.running.get() + " running, " + lane.queued.get() + " queued (peak " + lane.peakQueued.get() + "), " + lane.rejected.sum() + " rejected");
+        }
+        return Collections.unmodifiableMap(meta);
+    }
+
+    private final class LaneExecutor {
+        private final Lane lane;
+        private final Queue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger peakQueued = new AtomicInteger();
+        private final LongAdder rejected = new LongAdder();
+
+        LaneExecutor(Lane lane) {
+            this.lane = lane;
+        }
+
+        void submit(Task<?> task) {
+            int queued = this.queued.incrementAndGet();
+            if (queued > this.lane.queueCapacity) {
+                this.queued.decrementAndGet();
+                this.rejected.increment();
+                task.future.completeExceptionally(new RejectedExecutionException(this.lane.name + " storage queue is full"));
+                return;
+            }
+            this.peakQueued.accumulateAndGet(queued, Math::max);
+
+            this.queue.add(task);
+            drain();
+        }
+
+        private void drain() {
+            while (!this.queue.isEmpty()) {
+                int running = this.running.get();
+                if (running >= this.lane.concurrency) {
+                    // the next task to finish will pick up the rest of the queue
+                    return;
+                }
+                if (!this.running.compareAndSet(running, running + 1)) {
+                    continue;
+                }
+
+                Task<?> task = this.queue.poll();
+                if (task == null) {
+                    this.running.decrementAndGet();
+                    continue;
+                }
+                this.queued.decrementAndGet();
+
+                try {
+                    StorageExecutor.this.executor.execute(() -> run(task));
+                } catch (RejectedExecutionException e) {
+                    this.running.decrementAndGet();
+                    task.future.completeExceptionally(e);
+                }
+            }
+        }
+
+        private void run(Task<?> task) {
+            try {
+                task.call();
+            } finally {
+                this.running.decrementAndGet();
+                drain();
+            }
+
+            // complete after giving up our slot, so dependent actions run by
+            // the caller can't hold it
+            task.complete();
+        }
+    }
+
+    private static final class Task<T> {
+        private final Callable<T> callable;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private T result;
+        private Throwable exception;
+
+        Task(Callable<T> callable) {
+            this.callable = callable;
+        }
+
+        void call() {
+            try {
+                this.result = this.callable.call();
+            } catch (Throwable e) {
+                this.exception = e;
+            }
+        }
+
+        void complete() {
+            if (this.exception != null) {
+                this.future.completeExceptionally(this.exception);
+            } else {
+                this.future.complete(this.result);
+            }
+        }
+    }
+}
@@ -25,13 +25,16 @@
 
 package me.lucko.luckperms.common.storage.implementation;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.node.matcher.ConstraintNodeMatcher;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.storage.misc.LoginResult;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
 
 import net.luckperms.api.actionlog.Action;
@@ -41,6 +44,7 @@ import net.luckperms.api.node.Node;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -64,10 +68,45 @@ public interface StorageImplementation {
 
     Log getLog() throws Exception;
 
+    /**
+     * Gets a single page of the entries in the action log which match the
+     * given filter.
+     *
+     * <p>Implementations should override this to query only the requested
+     * page, instead of loading the whole log.</p>
+     *
+     * @param filter the filter
+     * @param pageNumber the page number, or {@link LogPage#LAST_PAGE}
+     * @param pageSize the number of entries per page
+     * @return the page
+     * @throws Exception if an exception occurs
+     */
+    default LogPage getLogPage(ActionFilter filter, int pageNumber, int pageSize) throws Exception {
+        return getLog().getPage(filter, pageNumber, pageSize);
+    }
+
     void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception;
 
     User loadUser(UUID uniqueId, String username) throws Exception;
 
+    /**
+     * Loads a number of users at once.
+     *
+     * <p>Implementations should override this to fetch the data for all of the
+     * users in as few round trips as possible.</p>
+     *
+     * @param uniqueIds the unique ids of the users to load
+     * @return the loaded users
+     * @throws Exception if an exception occurs
+     */
+    default Map<UUID, User> loadUsers(Set<UUID> uniqueIds) throws Exception {
+        Map<UUID, User> users = new HashMap<>();
+        for (UUID uniqueId : uniqueIds) {
+            users.put(uniqueId, loadUser(uniqueId, null));
+        }
+        return users;
+    }
+
     void saveUser(User user) throws Exception;
 
     Set<UUID> getUniqueUsers() throws Exception;
@@ -98,9 +137,68 @@ public interface StorageImplementation {
 
     PlayerSaveResult savePlayerData(UUID uniqueId, String username) throws Exception;
 
+    /**
+     * Saves the player data for a user who is logging in, then loads the user.
+     *
+     * <p>This is equivalent to calling {@link #savePlayerData(UUID, String)} followed
+     * by {@link #loadUser(UUID, String)}. Implementations should override this to
+     * perform both in as few round trips as possible.</p>
+     *
+     * @param uniqueId the unique id of the user
+     * @param username the username of the user
+     * @return the result of the login
+     * @throws Exception if an exception occurs
+     */
+    default LoginResult loginUser(UUID uniqueId, String username) throws Exception {
+        PlayerSaveResult saveResult = savePlayerData(uniqueId, username);
+        User user = loadUser(uniqueId, username);
+        return new LoginResult(saveResult, user);
+    }
+
     void deletePlayerData(UUID uniqueId) throws Exception;
 
     @Nullable UUID getPlayerUniqueId(String username) throws Exception;
 
     @Nullable String getPlayerName(UUID uniqueId) throws Exception;
+
+    /**
+     * Gets the current version stamp of each group held in storage.
+     *
+     * <p>The stamp of a group changes whenever its stored data changes, so the
+     * stamps returned by successive calls can be compared to work out which
+     * groups need to be reloaded. Where possible the stamps should be read
+     * without reading the data of each group.</p>
+     *
+     * @return the version stamps, or null if they are not supported
+     * @throws Exception if an exception occurs
+     * @see me.lucko.luckperms.common.storage.misc.VersionStamps
+     */
+    default @Nullable Map<String, Long> getGroupVersions() throws Exception {
+        return null;
+    }
+
+    /**
+     * Gets the current version stamp of each track held in storage.
+     *
+     * @return the version stamps, or null if they are not supported
+     * @throws Exception if an exception occurs
+     * @see #getGroupVersions()
+     */
+    default @Nullable Map<String, Long> getTrackVersions() throws Exception {
+        return null;
+    }
+
+    /**
+     * Gets the current version stamp of each of the given users held in storage.
+     *
+     * <p>Users with no stored data are omitted from the result.</p>
+     *
+     * @param uniqueIds the unique ids of the users
+     * @return the version stamps, or null if they are not supported
+     * @throws Exception if an exception occurs
+     * @see #getGroupVersions()
+     */
+    default @Nullable Map<UUID, Long> getUserVersions(Set<UUID> uniqueIds) throws Exception {
+        return null;
+    }
 }
@@ -31,6 +31,7 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.file.loader.ConfigurateLoader;
 import me.lucko.luckperms.common.storage.implementation.file.watcher.FileWatcher;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
+import me.lucko.luckperms.common.storage.misc.VersionStamps;
 import me.lucko.luckperms.common.util.Iterators;
 import me.lucko.luckperms.common.util.Uuids;
 
@@ -42,6 +43,7 @@ import ninja.leaping.configurate.loader.ConfigurationLoader;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -343,4 +345,38 @@ public class CombinedConfigurateStorage extends AbstractConfigurateStorage {
         this.plugin.getTrackManager().retainAll(tracks);
     }
 
+    @Override
+    public Map<String, Long> getGroupVersions() throws IOException {
+        return getNodeVersions(this.groupsLoader);
+    }
+
+    @Override
+    public Map<String, Long> getTrackVersions() throws IOException {
+        return getNodeVersions(this.tracksLoader);
+    }
+
+    @Override
+    public Map<UUID, Long> getUserVersions(Set<UUID> uniqueIds) throws IOException {
+        Map<UUID, Long> versions = new HashMap<>();
+        this.usersLoader.apply(false, true, root -> {
+            for (UUID uniqueId : uniqueIds) {
+                ConfigurationNode node = root.getNode(uniqueId.toString());
+                if (!node.isVirtual()) {
+                    versions.put(uniqueId, VersionStamps.hash(node.getValue()));
+                }
+            }
+        });
+        return versions;
+    }
+
+    private static Map<String, Long> getNodeVersions(CachedLoader loader) throws IOException {
+        Map<String, Long> versions = new HashMap<>();
+        loader.apply(false, true, root -> {
+            for (Map.Entry<Object, ? extends ConfigurationNode> entry : root.getChildrenMap().entrySet()) {
+                versions.put(entry.getKey().toString(), VersionStamps.hash(entry.getValue().getValue()));
+            }
+        });
+        return versions;
+    }
+
 }
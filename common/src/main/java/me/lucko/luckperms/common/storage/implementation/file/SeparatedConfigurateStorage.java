@@ -32,6 +32,7 @@ import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.file.loader.ConfigurateLoader;
 import me.lucko.luckperms.common.storage.implementation.file.watcher.FileWatcher;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
+import me.lucko.luckperms.common.storage.misc.VersionStamps;
 import me.lucko.luckperms.common.util.Iterators;
 import me.lucko.luckperms.common.util.MoreFiles;
 import me.lucko.luckperms.common.util.Uuids;
@@ -43,8 +44,11 @@ import ninja.leaping.configurate.ConfigurationNode;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
@@ -241,6 +245,15 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
         }
     }
 
+    @Override
+    public Map<UUID, User> loadUsers(Set<UUID> uniqueIds) {
+        Map<UUID, User> users = new HashMap<>();
+        for (UUID uniqueId : uniqueIds) {
+            users.put(uniqueId, loadUser(uniqueId, null));
+        }
+        return users;
+    }
+
     @Override
     public Set<UUID> getUniqueUsers() throws IOException {
         try (Stream<Path> stream = Files.list(this.usersDirectory)) {
@@ -339,4 +352,47 @@ public class SeparatedConfigurateStorage extends AbstractConfigurateStorage {
         this.plugin.getTrackManager().retainAll(tracks);
     }
 
+    @Override
+    public Map<String, Long> getGroupVersions() throws IOException {
+        return getFileVersions(this.groupsDirectory);
+    }
+
+    @Override
+    public Map<String, Long> getTrackVersions() throws IOException {
+        return getFileVersions(this.tracksDirectory);
+    }
+
+    @Override
+    public Map<UUID, Long> getUserVersions(Set<UUID> uniqueIds) throws IOException {
+        Map<UUID, Long> versions = new HashMap<>();
+        for (UUID uniqueId : uniqueIds) {
+            Path file = this.usersDirectory.resolve(uniqueId.toString() + this.fileExtension);
+            if (Files.exists(file)) {
+                versions.put(uniqueId, getFileVersion(file));
+            }
+        }
+        return versions;
+    }
+
+    private Map<String, Long> getFileVersions(Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(this.fileExtensionFilter).collect(Collectors.toList());
+        }
+
+        Map<String, Long> versions = new HashMap<>();
+        for (Path file : files) {
+            String fileName = file.getFileName().toString();
+            versions.put(fileName.substring(0, fileName.length() - this.fileExtension.length()), getFileVersion(file));
+        }
+        return versions;
+    }
+
+    private static long getFileVersion(Path file) throws IOException {
+        // each object is stored in its own file, so there's no need to read the
+        // contents - the file attributes change whenever the object is saved
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        return VersionStamps.hash(attributes.lastModifiedTime().toMillis(), attributes.size());
+    }
+
 }
@@ -31,15 +31,32 @@ import com.mongodb.MongoClientOptions;
 import com.mongodb.MongoClientURI;
 import com.mongodb.MongoCredential;
 import com.mongodb.ServerAddress;
+import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Collation;
+import com.mongodb.client.model.CollationStrength;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
+import me.lucko.luckperms.common.bulkupdate.comparison.Constraint;
+import me.lucko.luckperms.common.bulkupdate.comparison.StandardComparison;
+import me.lucko.luckperms.common.bulkupdate.query.Query;
+import me.lucko.luckperms.common.bulkupdate.query.QueryField;
 import me.lucko.luckperms.common.context.contextset.MutableContextSetImpl;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
@@ -65,9 +82,13 @@ import net.luckperms.api.node.Node;
 import net.luckperms.api.node.NodeBuilder;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -76,9 +97,23 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class MongoStorage implements StorageImplementation {
+    /** The maximum number of users to select in a single query when loading users in bulk */
+    private static final int USER_LOAD_BATCH_SIZE = 500;
+
+    /** The maximum number of writes to send in a single bulk write when applying a bulk update */
+    private static final int BULK_WRITE_BATCH_SIZE = 1000;
+
+    /** The collation used to compare node keys without regard to case */
+    private static final Collation CASE_INSENSITIVE_COLLATION = Collation.builder()
+            .locale("en")
+            .collationStrength(CollationStrength.SECONDARY)
+            .build();
+
     private final LuckPermsPlugin plugin;
 
     private final StorageCredentials configuration;
@@ -131,6 +166,28 @@ public class MongoStorage implements StorageImplementation {
         }
         
         this.database = this.mongoClient.getDatabase(this.configuration.getDatabase());
+
+        // create the indexes used when searching for nodes. regex searches use the
+        // plain indexes, and equality searches use the case insensitive ones
+        for (String collection : new String[]{"users", "groups"}) {
+            MongoCollection<Document> c = this.database.getCollection(this.prefix + collection);
+            c.createIndex(Indexes.ascending("permissions.key"));
+            c.createIndex(Indexes.ascending("permissions.permission"));
+            c.createIndex(Indexes.ascending("permissions.key"), new IndexOptions().name("permissions.key_ci").collation(CASE_INSENSITIVE_COLLATION));
+            c.createIndex(Indexes.ascending("permissions.permission"), new IndexOptions().name("permissions.permission_ci").collation(CASE_INSENSITIVE_COLLATION));
+        }
+
+        MongoCollection<Document> actions = this.database.getCollection(this.prefix + "action");
+        actions.createIndex(Indexes.descending("timestamp"));
+        actions.createIndex(Indexes.compoundIndex(Indexes.ascending("source.uniqueId"), Indexes.descending("timestamp")));
+        actions.createIndex(Indexes.compoundIndex(Indexes.ascending("target.uniqueId"), Indexes.descending("timestamp")));
+        actions.createIndex(Indexes.compoundIndex(Indexes.ascending("target.name"), Indexes.descending("timestamp")));
+
+        // the legacy format fields are only present on old entries
+        IndexOptions sparse = new IndexOptions().sparse(true);
+        actions.createIndex(Indexes.ascending("actor"), sparse);
+        actions.createIndex(Indexes.ascending("acted"), sparse);
+        actions.createIndex(Indexes.ascending("actedName"), sparse);
     }
 
     @Override
@@ -194,104 +251,81 @@ public class MongoStorage implements StorageImplementation {
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
         try (MongoCursor<Document> cursor = c.find().iterator()) {
             while (cursor.hasNext()) {
-                Document d = cursor.next();
-
-                if (d.containsKey("source")) {
-                    // new format
-                    Document source = d.get("source", Document.class);
-                    Document target = d.get("target", Document.class);
-
-                    UUID targetUniqueId = null;
-                    if (target.containsKey("uniqueId")) {
-                        targetUniqueId = target.get("uniqueId", UUID.class);
-                    }
-
-                    LoggedAction e = LoggedAction.build()
-                            .timestamp(Instant.ofEpochSecond(d.getLong("timestamp")))
-                            .source(source.get("uniqueId", UUID.class))
-                            .sourceName(source.getString("name"))
-                            .targetType(LoggedAction.parseType(target.getString("type")))
-                            .target(targetUniqueId)
-                            .targetName(target.getString("name"))
-                            .description(d.getString("description"))
-                            .build();
-
-                    log.add(e);
-                } else {
-                    // old format
-                    UUID actedUuid = null;
-                    if (d.containsKey("acted")) {
-                        actedUuid = d.get("acted", UUID.class);
-                    }
-
-                    LoggedAction e = LoggedAction.build()
-                            .timestamp(Instant.ofEpochSecond(d.getLong("timestamp")))
-                            .source(d.get("actor", UUID.class))
-                            .sourceName(d.getString("actorName"))
-                            .targetType(LoggedAction.parseTypeCharacter(d.getString("type").charAt(0)))
-                            .target(actedUuid)
-                            .targetName(d.getString("actedName"))
-                            .description(d.getString("action"))
-                            .build();
-
-                    log.add(e);
-                }
+                log.add(readAction(cursor.next()));
             }
         }
         return log.build();
     }
 
     @Override
-    public void applyBulkUpdate(BulkUpdate bulkUpdate) {
-        if (bulkUpdate.getDataType().isIncludingUsers()) {
-            MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
-            try (MongoCursor<Document> cursor = c.find().iterator()) {
-                while (cursor.hasNext()) {
-                    Document d = cursor.next();
-
-                    UUID uuid = getDocumentId(d);
-                    Set<Node> nodes = new HashSet<>(nodesFromDoc(d));
-                    Set<Node> results = nodes.stream()
-                            .map(bulkUpdate::apply)
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toSet());
-
-                    if (!nodes.equals(results)) {
-                        List<Document> newNodes = results.stream()
-                                .map(MongoStorage::nodeToDoc)
-                                .collect(Collectors.toList());
+    public LogPage getLogPage(ActionFilter filter, int pageNumber, int pageSize) {
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "action");
+        Bson query = createActionFilter(filter);
 
-                        d.append("permissions", newNodes).remove("perms");
-                        c.replaceOne(new Document("_id", uuid), d);
-                    }
+        int totalEntries = (int) c.countDocuments(query);
+        return LogPage.create(pageNumber, pageSize, totalEntries, (offset, limit) -> {
+            List<LoggedAction> actions = new ArrayList<>(limit);
+            try (MongoCursor<Document> cursor = c.find(query).sort(Sorts.descending("timestamp", "_id")).skip(offset).limit(limit).iterator()) {
+                while (cursor.hasNext()) {
+                    actions.add(readAction(cursor.next()));
                 }
             }
+            return actions;
+        });
+    }
+
+    @Override
+    public void applyBulkUpdate(BulkUpdate bulkUpdate) {
+        if (bulkUpdate.getDataType().isIncludingUsers()) {
+            applyBulkUpdate(bulkUpdate, this.database.getCollection(this.prefix + "users"));
         }
 
         if (bulkUpdate.getDataType().isIncludingGroups()) {
-            MongoCollection<Document> c = this.database.getCollection(this.prefix + "groups");
-            try (MongoCursor<Document> cursor = c.find().iterator()) {
-                while (cursor.hasNext()) {
-                    Document d = cursor.next();
+            applyBulkUpdate(bulkUpdate, this.database.getCollection(this.prefix + "groups"));
+        }
+    }
 
-                    String holder = d.getString("_id");
-                    Set<Node> nodes = new HashSet<>(nodesFromDoc(d));
-                    Set<Node> results = nodes.stream()
-                            .map(bulkUpdate::apply)
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toSet());
+    private static void applyBulkUpdate(BulkUpdate bulkUpdate, MongoCollection<Document> c) {
+        // only fetch the documents which hold a node that could match the permission constraints
+        List<Constraint> constraints = new ArrayList<>();
+        for (Query query : bulkUpdate.getQueries()) {
+            if (query.getField() == QueryField.PERMISSION) {
+                constraints.add(query.getConstraint());
+            }
+        }
 
-                    if (!nodes.equals(results)) {
-                        List<Document> newNodes = results.stream()
-                                .map(MongoStorage::nodeToDoc)
-                                .collect(Collectors.toList());
+        List<WriteModel<Document>> writes = new ArrayList<>();
+        try (MongoCursor<Document> cursor = findNodeHolders(c, constraints).projection(Projections.include("permissions")).iterator()) {
+            while (cursor.hasNext()) {
+                Document d = cursor.next();
 
-                        d.append("permissions", newNodes).remove("perms");
-                        c.replaceOne(new Document("_id", holder), d);
+                Set<Node> nodes = new HashSet<>(nodesFromDoc(d));
+                Set<Node> results = nodes.stream()
+                        .map(bulkUpdate::apply)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toSet());
+
+                if (!nodes.equals(results)) {
+                    List<Document> newNodes = results.stream()
+                            .map(MongoStorage::nodeToDoc)
+                            .collect(Collectors.toList());
+
+                    writes.add(new UpdateOneModel<>(
+                            new Document("_id", d.get("_id")),
+                            Updates.combine(Updates.set("permissions", newNodes), Updates.set("version", newVersion()), Updates.unset("perms"))
+                    ));
+
+                    if (writes.size() >= BULK_WRITE_BATCH_SIZE) {
+                        c.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+                        writes.clear();
                     }
                 }
             }
         }
+
+        if (!writes.isEmpty()) {
+            c.bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        }
     }
 
     @Override
@@ -301,35 +335,73 @@ public class MongoStorage implements StorageImplementation {
         try {
             MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
             try (MongoCursor<Document> cursor = c.find(new Document("_id", user.getUniqueId())).iterator()) {
-                if (cursor.hasNext()) {
-                    // User exists, let's load.
-                    Document d = cursor.next();
+                applyUserData(c, user, cursor.hasNext() ? cursor.next() : null);
+            }
+        } finally {
+            user.getIoLock().unlock();
+        }
+        return user;
+    }
 
-                    String name = d.getString("name");
-                    user.getPrimaryGroup().setStoredValue(d.getString("primaryGroup"));
-                    user.setNodes(DataType.NORMAL, nodesFromDoc(d));
-                    user.setUsername(name, true);
+    @Override
+    public Map<UUID, User> loadUsers(Set<UUID> uniqueIds) {
+        Map<UUID, User> users = new HashMap<>();
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
+        // each batch locks all of its users at once, so they must always be
+        // locked in the same order to avoid deadlocking with other loads
+        List<UUID> sortedIds = new ArrayList<>(uniqueIds);
+        sortedIds.sort(Comparator.naturalOrder());
+
+        for (List<UUID> batch : Iterators.divideIterable(sortedIds, USER_LOAD_BATCH_SIZE)) {
+            List<User> batchUsers = new ArrayList<>(batch.size());
+            for (UUID uniqueId : batch) {
+                batchUsers.add(this.plugin.getUserManager().getOrMake(uniqueId));
+            }
 
-                    boolean save = this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
-                    if (user.getUsername().isPresent() && (name == null || !user.getUsername().get().equalsIgnoreCase(name))) {
-                        save = true;
+            batchUsers.forEach(user -> user.getIoLock().lock());
+            try {
+                Map<UUID, Document> documents = new HashMap<>();
+                try (MongoCursor<Document> cursor = c.find(Filters.in("_id", batch)).iterator()) {
+                    while (cursor.hasNext()) {
+                        Document d = cursor.next();
+                        documents.putIfAbsent(getDocumentId(d), d);
                     }
+                }
 
-                    if (save | user.auditTemporaryNodes()) {
-                        c.replaceOne(new Document("_id", user.getUniqueId()), userToDoc(user));
-                    }
-                } else {
-                    if (this.plugin.getUserManager().shouldSave(user)) {
-                        user.clearNodes(DataType.NORMAL, null, true);
-                        user.getPrimaryGroup().setStoredValue(null);
-                        this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
-                    }
+                for (User user : batchUsers) {
+                    applyUserData(c, user, documents.get(user.getUniqueId()));
+                    users.put(user.getUniqueId(), user);
                 }
+            } finally {
+                batchUsers.forEach(user -> user.getIoLock().unlock());
+            }
+        }
+        return users;
+    }
+
+    private void applyUserData(MongoCollection<Document> c, User user, Document d) {
+        if (d != null) {
+            // User exists, let's load.
+            String name = d.getString("name");
+            user.getPrimaryGroup().setStoredValue(d.getString("primaryGroup"));
+            user.setNodes(DataType.NORMAL, nodesFromDoc(d));
+            user.setUsername(name, true);
+
+            boolean save = this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+            if (user.getUsername().isPresent() && (name == null || !user.getUsername().get().equalsIgnoreCase(name))) {
+                save = true;
+            }
+
+            if (save | user.auditTemporaryNodes()) {
+                c.replaceOne(new Document("_id", user.getUniqueId()), userToDoc(user));
+            }
+        } else {
+            if (this.plugin.getUserManager().shouldSave(user)) {
+                user.clearNodes(DataType.NORMAL, null, true);
+                user.getPrimaryGroup().setStoredValue(null);
+                this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
             }
-        } finally {
-            user.getIoLock().unlock();
         }
-        return user;
     }
 
     @Override
@@ -367,7 +439,7 @@ public class MongoStorage implements StorageImplementation {
     public <N extends Node> List<NodeEntry<UUID, N>> searchUserNodes(ConstraintNodeMatcher<N> constraint) throws Exception {
         List<NodeEntry<UUID, N>> held = new ArrayList<>();
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
-        try (MongoCursor<Document> cursor = c.find().iterator()) {
+        try (MongoCursor<Document> cursor = findNodeHolders(c, Collections.singletonList(constraint.getConstraint())).iterator()) {
             while (cursor.hasNext()) {
                 Document d = cursor.next();
                 UUID holder = getDocumentId(d);
@@ -477,7 +549,7 @@ public class MongoStorage implements StorageImplementation {
     public <N extends Node> List<NodeEntry<String, N>> searchGroupNodes(ConstraintNodeMatcher<N> constraint) throws Exception {
         List<NodeEntry<String, N>> held = new ArrayList<>();
         MongoCollection<Document> c = this.database.getCollection(this.prefix + "groups");
-        try (MongoCursor<Document> cursor = c.find().iterator()) {
+        try (MongoCursor<Document> cursor = findNodeHolders(c, Collections.singletonList(constraint.getConstraint())).iterator()) {
             while (cursor.hasNext()) {
                 Document d = cursor.next();
                 String holder = d.getString("_id");
@@ -594,7 +666,7 @@ public class MongoStorage implements StorageImplementation {
         // find any existing mapping
         String oldUsername = getPlayerName(uniqueId);
 
-        // do the insert
+        // only write the mapping if it has changed, as this runs on every login
         if (!username.equalsIgnoreCase(oldUsername)) {
             c.replaceOne(new Document("_id", uniqueId), new Document("_id", uniqueId).append("name", username), new ReplaceOptions().upsert(true));
         }
@@ -602,16 +674,15 @@ public class MongoStorage implements StorageImplementation {
         PlayerSaveResultImpl result = PlayerSaveResultImpl.determineBaseResult(username, oldUsername);
 
         Set<UUID> conflicting = new HashSet<>();
-        try (MongoCursor<Document> cursor = c.find(new Document("name", username)).iterator()) {
+        try (MongoCursor<Document> cursor = c.find(Filters.and(Filters.eq("name", username), Filters.ne("_id", uniqueId))).iterator()) {
             while (cursor.hasNext()) {
                 conflicting.add(getDocumentId(cursor.next()));
             }
         }
-        conflicting.remove(uniqueId);
 
         if (!conflicting.isEmpty()) {
             // remove the mappings for conflicting uuids
-            c.deleteMany(Filters.and(conflicting.stream().map(u -> Filters.eq("_id", u)).collect(Collectors.toList())));
+            c.deleteMany(Filters.in("_id", conflicting));
             result = result.withOtherUuidsPresent(conflicting);
         }
 
@@ -644,6 +715,191 @@ public class MongoStorage implements StorageImplementation {
         return null;
     }
 
+    @Override
+    public Map<String, Long> getGroupVersions() {
+        return getDocumentVersions(this.database.getCollection(this.prefix + "groups"));
+    }
+
+    @Override
+    public Map<String, Long> getTrackVersions() {
+        return getDocumentVersions(this.database.getCollection(this.prefix + "tracks"));
+    }
+
+    private static Map<String, Long> getDocumentVersions(MongoCollection<Document> c) {
+        Map<String, Long> versions = new HashMap<>();
+        try (MongoCursor<Document> cursor = c.find().projection(Projections.include("version")).iterator()) {
+            while (cursor.hasNext()) {
+                Document d = cursor.next();
+                versions.put(d.getString("_id"), getDocumentVersion(d));
+            }
+        }
+        return versions;
+    }
+
+    @Override
+    public Map<UUID, Long> getUserVersions(Set<UUID> uniqueIds) {
+        Map<UUID, Long> versions = new HashMap<>();
+        MongoCollection<Document> c = this.database.getCollection(this.prefix + "users");
+        for (List<UUID> batch : Iterators.divideIterable(uniqueIds, USER_LOAD_BATCH_SIZE)) {
+            try (MongoCursor<Document> cursor = c.find(Filters.in("_id", batch)).projection(Projections.include("version")).iterator()) {
+                while (cursor.hasNext()) {
+                    Document d = cursor.next();
+                    versions.put(getDocumentId(d), getDocumentVersion(d));
+                }
+            }
+        }
+        return versions;
+    }
+
+    private static LoggedAction readAction(Document d) {
+        if (d.containsKey("source")) {
+            // new format
+            Document source = d.get("source", Document.class);
+            Document target = d.get("target", Document.class);
+
+            UUID targetUniqueId = null;
+            if (target.containsKey("uniqueId")) {
+                targetUniqueId = target.get("uniqueId", UUID.class);
+            }
+
+            return LoggedAction.build()
+                    .timestamp(Instant.ofEpochSecond(d.getLong("timestamp")))
+                    .source(source.get("uniqueId", UUID.class))
+                    .sourceName(source.getString("name"))
+                    .targetType(LoggedAction.parseType(target.getString("type")))
+                    .target(targetUniqueId)
+                    .targetName(target.getString("name"))
+                    .description(d.getString("description"))
+                    .build();
+        } else {
+            // old format
+            UUID actedUuid = null;
+            if (d.containsKey("acted")) {
+                actedUuid = d.get("acted", UUID.class);
+            }
+
+            return LoggedAction.build()
+                    .timestamp(Instant.ofEpochSecond(d.getLong("timestamp")))
+                    .source(d.get("actor", UUID.class))
+                    .sourceName(d.getString("actorName"))
+                    .targetType(LoggedAction.parseTypeCharacter(d.getString("type").charAt(0)))
+                    .target(actedUuid)
+                    .targetName(d.getString("actedName"))
+                    .description(d.getString("action"))
+                    .build();
+        }
+    }
+
+    private static Bson createActionFilter(ActionFilter filter) {
+        // entries saved by older versions use a flat format, so each filter
+        // has to match either the current or the legacy field names
+        switch (filter.getType()) {
+            case ALL:
+                return new Document();
+            case SOURCE:
+                return Filters.or(
+                        Filters.eq("source.uniqueId", filter.getUniqueId()),
+                        Filters.eq("actor", filter.getUniqueId())
+                );
+            case USER:
+                return Filters.or(
+                        Filters.and(Filters.eq("target.uniqueId", filter.getUniqueId()), Filters.eq("target.type", filter.getType().getTargetType().name())),
+                        Filters.and(Filters.eq("acted", filter.getUniqueId()), createLegacyTypeFilter(filter))
+                );
+            case GROUP:
+            case TRACK:
+                return Filters.or(
+                        Filters.and(Filters.eq("target.name", filter.getValue()), Filters.eq("target.type", filter.getType().getTargetType().name())),
+                        Filters.and(Filters.eq("actedName", filter.getValue()), createLegacyTypeFilter(filter))
+                );
+            case SEARCH:
+                Pattern pattern = Pattern.compile(Pattern.quote(filter.getValue()), Pattern.CASE_INSENSITIVE);
+                return Filters.or(
+                        Filters.regex("source.name", pattern),
+                        Filters.regex("target.name", pattern),
+                        Filters.regex("description", pattern),
+                        Filters.regex("actorName", pattern),
+                        Filters.regex("actedName", pattern),
+                        Filters.regex("action", pattern)
+                );
+            default:
+                throw new AssertionError(filter.getType());
+        }
+    }
+
+    private static Bson createLegacyTypeFilter(ActionFilter filter) {
+        char type = LoggedAction.getTypeCharacter(filter.getType().getTargetType());
+        return Filters.in("type", Character.toString(type), Character.toString(Character.toLowerCase(type)));
+    }
+
+    /**
+     * Finds the documents holding nodes whose keys satisfy all of the given constraints.
+     *
+     * <p>The query may match more documents than necessary, so the constraints
+     * should still be tested against the nodes in each returned document.</p>
+     *
+     * @param c the collection
+     * @param constraints the constraints
+     * @return the query
+     */
+    private static FindIterable<Document> findNodeHolders(MongoCollection<Document> c, List<Constraint> constraints) {
+        List<Bson> filters = new ArrayList<>();
+        boolean equality = false;
+        for (Constraint constraint : constraints) {
+            filters.add(createSearchFilter(constraint));
+            equality |= constraint.getComparison() == StandardComparison.EQUAL || constraint.getComparison() == StandardComparison.NOT_EQUAL;
+        }
+
+        FindIterable<Document> find = c.find(filters.isEmpty() ? new Document() : Filters.and(filters));
+
+        // equality filters rely on the collation to ignore case, which also allows the
+        // case insensitive indexes to be used. regex matching isn't affected by it
+        return equality ? find.collation(CASE_INSENSITIVE_COLLATION) : find;
+    }
+
+    /**
+     * Creates a filter which matches the documents holding a node whose key
+     * satisfies the given constraint.
+     *
+     * <p>Equality comparisons are only case insensitive when the query uses
+     * the {@link #CASE_INSENSITIVE_COLLATION}, see {@link #findNodeHolders}.</p>
+     *
+     * @param constraint the constraint
+     * @return the filter
+     */
+    private static Bson createSearchFilter(Constraint constraint) {
+        if (!(constraint.getComparison() instanceof StandardComparison)) {
+            return new Document();
+        }
+
+        String expression = constraint.getExpressionValue();
+        Bson keyFilter;
+        Bson legacyKeyFilter;
+        boolean negated;
+        switch ((StandardComparison) constraint.getComparison()) {
+            case EQUAL:
+            case NOT_EQUAL:
+                // nodes saved by older versions use "permission" instead of "key"
+                keyFilter = Filters.eq("key", expression);
+                legacyKeyFilter = Filters.eq("permission", expression);
+                negated = constraint.getComparison() == StandardComparison.NOT_EQUAL;
+                break;
+            case SIMILAR:
+            case NOT_SIMILAR:
+                // anchor the pattern, as mongo looks for a match anywhere in the string.
+                // keeping the literal prefix at the start allows the index to be used efficiently
+                Pattern pattern = Pattern.compile("^" + StandardComparison.compilePatternForLikeSyntax(expression).pattern() + "$");
+                keyFilter = Filters.regex("key", pattern);
+                legacyKeyFilter = Filters.regex("permission", pattern);
+                negated = constraint.getComparison() == StandardComparison.NOT_SIMILAR;
+                break;
+            default:
+                return new Document();
+        }
+
+        return Filters.elemMatch("permissions", negated ? Filters.nor(keyFilter, legacyKeyFilter) : Filters.or(keyFilter, legacyKeyFilter));
+    }
+
     private static UUID getDocumentId(Document doc) {
         Object id = doc.get("_id");
         if (id instanceof UUID) {
@@ -655,6 +911,23 @@ public class MongoStorage implements StorageImplementation {
         }
     }
 
+    /**
+     * Creates a new version for a document being written.
+     *
+     * <p>Documents are replaced whole, so rather than being incremented the
+     * version is replaced by a new random value on each write.</p>
+     *
+     * @return the new version
+     */
+    private static long newVersion() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    private static long getDocumentVersion(Document document) {
+        Object version = document.get("version");
+        return version instanceof Number ? ((Number) version).longValue() : 0L;
+    }
+
     private static Document userToDoc(User user) {
         List<Document> nodes = user.normalData().asList().stream()
                 .map(MongoStorage::nodeToDoc)
@@ -663,7 +936,8 @@ public class MongoStorage implements StorageImplementation {
         return new Document("_id", user.getUniqueId())
                 .append("name", user.getUsername().orElse("null"))
                 .append("primaryGroup", user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME))
-                .append("permissions", nodes);
+                .append("permissions", nodes)
+                .append("version", newVersion());
     }
 
     private static List<Node> nodesFromDoc(Document document) {
@@ -683,11 +957,11 @@ public class MongoStorage implements StorageImplementation {
                 .map(MongoStorage::nodeToDoc)
                 .collect(Collectors.toList());
 
-        return new Document("_id", group.getName()).append("permissions", nodes);
+        return new Document("_id", group.getName()).append("permissions", nodes).append("version", newVersion());
     }
 
     private static Document trackToDoc(Track track) {
-        return new Document("_id", track.getName()).append("groups", track.getGroups());
+        return new Document("_id", track.getName()).append("groups", track.getGroups()).append("version", newVersion());
     }
 
     private static Document nodeToDoc(Node node) {
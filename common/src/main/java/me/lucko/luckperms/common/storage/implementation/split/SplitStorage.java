@@ -27,7 +27,9 @@ package me.lucko.luckperms.common.storage.implementation.split;
 
 import com.google.common.collect.ImmutableMap;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.model.Group;
 import me.lucko.luckperms.common.model.Track;
@@ -36,6 +38,7 @@ import me.lucko.luckperms.common.node.matcher.ConstraintNodeMatcher;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.StorageType;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
+import me.lucko.luckperms.common.storage.misc.LoginResult;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
 
 import net.luckperms.api.actionlog.Action;
@@ -125,6 +128,11 @@ public class SplitStorage implements StorageImplementation {
         return implFor(SplitStorageType.LOG).getLog();
     }
 
+    @Override
+    public LogPage getLogPage(ActionFilter filter, int pageNumber, int pageSize) throws Exception {
+        return implFor(SplitStorageType.LOG).getLogPage(filter, pageNumber, pageSize);
+    }
+
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws Exception {
         StorageType userType = this.types.get(SplitStorageType.USER);
@@ -143,6 +151,11 @@ public class SplitStorage implements StorageImplementation {
         return implFor(SplitStorageType.USER).loadUser(uniqueId, username);
     }
 
+    @Override
+    public Map<UUID, User> loadUsers(Set<UUID> uniqueIds) throws Exception {
+        return implFor(SplitStorageType.USER).loadUsers(uniqueIds);
+    }
+
     @Override
     public void saveUser(User user) throws Exception {
         implFor(SplitStorageType.USER).saveUser(user);
@@ -218,6 +231,21 @@ public class SplitStorage implements StorageImplementation {
         return implFor(SplitStorageType.UUID).savePlayerData(uniqueId, username);
     }
 
+    @Override
+    public LoginResult loginUser(UUID uniqueId, String username) throws Exception {
+        StorageImplementation userImpl = implFor(SplitStorageType.USER);
+        StorageImplementation uuidImpl = implFor(SplitStorageType.UUID);
+
+        // can only be combined if the same implementation holds both
+        if (userImpl == uuidImpl) {
+            return userImpl.loginUser(uniqueId, username);
+        }
+
+        PlayerSaveResult saveResult = uuidImpl.savePlayerData(uniqueId, username);
+        User user = userImpl.loadUser(uniqueId, username);
+        return new LoginResult(saveResult, user);
+    }
+
     @Override
     public void deletePlayerData(UUID uniqueId) throws Exception {
         implFor(SplitStorageType.UUID).deletePlayerData(uniqueId);
@@ -232,4 +260,19 @@ public class SplitStorage implements StorageImplementation {
     public String getPlayerName(UUID uniqueId) throws Exception {
         return implFor(SplitStorageType.UUID).getPlayerName(uniqueId);
     }
+
+    @Override
+    public Map<String, Long> getGroupVersions() throws Exception {
+        return implFor(SplitStorageType.GROUP).getGroupVersions();
+    }
+
+    @Override
+    public Map<String, Long> getTrackVersions() throws Exception {
+        return implFor(SplitStorageType.TRACK).getTrackVersions();
+    }
+
+    @Override
+    public Map<UUID, Long> getUserVersions(Set<UUID> uniqueIds) throws Exception {
+        return implFor(SplitStorageType.USER).getUserVersions(uniqueIds);
+    }
 }
@@ -28,7 +28,9 @@ package me.lucko.luckperms.common.storage.implementation.sql;
 import com.google.common.collect.ImmutableMap;
 import com.google.gson.reflect.TypeToken;
 
+import me.lucko.luckperms.common.actionlog.ActionFilter;
 import me.lucko.luckperms.common.actionlog.Log;
+import me.lucko.luckperms.common.actionlog.LogPage;
 import me.lucko.luckperms.common.actionlog.LoggedAction;
 import me.lucko.luckperms.common.bulkupdate.BulkUpdate;
 import me.lucko.luckperms.common.bulkupdate.PreparedStatementBuilder;
@@ -41,8 +43,11 @@ import me.lucko.luckperms.common.node.matcher.ConstraintNodeMatcher;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.storage.implementation.StorageImplementation;
 import me.lucko.luckperms.common.storage.implementation.sql.connection.ConnectionFactory;
+import me.lucko.luckperms.common.storage.misc.LoginResult;
 import me.lucko.luckperms.common.storage.misc.NodeEntry;
 import me.lucko.luckperms.common.storage.misc.PlayerSaveResultImpl;
+import me.lucko.luckperms.common.util.Difference;
+import me.lucko.luckperms.common.util.Iterators;
 import me.lucko.luckperms.common.util.Uuids;
 import me.lucko.luckperms.common.util.gson.GsonProvider;
 
@@ -63,6 +68,8 @@ import java.sql.Statement;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -78,9 +85,11 @@ public class SqlStorage implements StorageImplementation {
 
     private static final String USER_PERMISSIONS_SELECT = "SELECT id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE uuid=?";
     private static final String USER_PERMISSIONS_DELETE_SPECIFIC = "DELETE FROM '{prefix}user_permissions' WHERE id=?";
+    private static final String USER_PERMISSIONS_DELETE_SPECIFIC_PROPS = "DELETE FROM '{prefix}user_permissions' WHERE uuid=? AND permission=? AND value=? AND server=? AND world=? AND expiry=? AND contexts=?";
     private static final String USER_PERMISSIONS_DELETE = "DELETE FROM '{prefix}user_permissions' WHERE uuid=?";
     private static final String USER_PERMISSIONS_INSERT = "INSERT INTO '{prefix}user_permissions' (uuid, permission, value, server, world, expiry, contexts) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String USER_PERMISSIONS_SELECT_DISTINCT = "SELECT DISTINCT uuid FROM '{prefix}user_permissions'";
+    private static final String USER_PERMISSIONS_SELECT_MULTIPLE = "SELECT uuid, id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE uuid IN ";
     private static final String USER_PERMISSIONS_SELECT_PERMISSION = "SELECT uuid, id, permission, value, server, world, expiry, contexts FROM '{prefix}user_permissions' WHERE ";
 
     private static final String PLAYER_SELECT_UUID_BY_USERNAME = "SELECT uuid FROM '{prefix}players' WHERE username=? LIMIT 1";
@@ -91,8 +100,11 @@ public class SqlStorage implements StorageImplementation {
     private static final String PLAYER_SELECT_ALL_UUIDS_BY_USERNAME = "SELECT uuid FROM '{prefix}players' WHERE username=? AND NOT uuid=?";
     private static final String PLAYER_DELETE_ALL_UUIDS_BY_USERNAME = "DELETE FROM '{prefix}players' WHERE username=? AND NOT uuid=?";
     private static final String PLAYER_SELECT_BY_UUID = "SELECT username, primary_group FROM '{prefix}players' WHERE uuid=?";
+    private static final String PLAYER_SELECT_BY_UUID_MULTIPLE = "SELECT uuid, username, primary_group FROM '{prefix}players' WHERE uuid IN ";
     private static final String PLAYER_SELECT_PRIMARY_GROUP_BY_UUID = "SELECT primary_group FROM '{prefix}players' WHERE uuid=? LIMIT 1";
-    private static final String PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID = "UPDATE '{prefix}players' SET primary_group=? WHERE uuid=?";
+    private static final String PLAYER_UPDATE_PRIMARY_GROUP_BY_UUID = "UPDATE '{prefix}players' SET primary_group=?, version=version+1 WHERE uuid=?";
+    private static final String PLAYER_SELECT_VERSION_BY_UUID_MULTIPLE = "SELECT uuid, version FROM '{prefix}players' WHERE uuid IN ";
+    private static final String PLAYER_UPDATE_ALL_VERSIONS = "UPDATE '{prefix}players' SET version=version+1";
 
     private static final String GROUP_PERMISSIONS_SELECT = "SELECT id, permission, value, server, world, expiry, contexts FROM '{prefix}group_permissions' WHERE name=?";
     private static final String GROUP_PERMISSIONS_SELECT_ALL = "SELECT name, id, permission, value, server, world, expiry, contexts FROM '{prefix}group_permissions'";
@@ -109,15 +121,24 @@ public class SqlStorage implements StorageImplementation {
     );
     private static final String GROUP_INSERT_DEFAULT = "INSERT INTO '{prefix}groups' (name) VALUES(?) ON DUPLICATE KEY UPDATE name=name";
     private static final String GROUP_DELETE = "DELETE FROM '{prefix}groups' WHERE name=?";
+    private static final String GROUP_SELECT_ALL_VERSIONS = "SELECT name, version FROM '{prefix}groups'";
+    private static final String GROUP_UPDATE_VERSION = "UPDATE '{prefix}groups' SET version=version+1 WHERE name=?";
+    private static final String GROUP_UPDATE_ALL_VERSIONS = "UPDATE '{prefix}groups' SET version=version+1";
 
     private static final String TRACK_INSERT = "INSERT INTO '{prefix}tracks' (name, 'groups') VALUES(?, ?)";
     private static final String TRACK_SELECT = "SELECT 'groups' FROM '{prefix}tracks' WHERE name=?";
     private static final String TRACK_SELECT_ALL = "SELECT * FROM '{prefix}tracks'";
-    private static final String TRACK_UPDATE = "UPDATE '{prefix}tracks' SET 'groups'=? WHERE name=?";
+    private static final String TRACK_UPDATE = "UPDATE '{prefix}tracks' SET 'groups'=?, version=version+1 WHERE name=?";
     private static final String TRACK_DELETE = "DELETE FROM '{prefix}tracks' WHERE name=?";
+    private static final String TRACK_SELECT_ALL_VERSIONS = "SELECT name, version FROM '{prefix}tracks'";
 
     private static final String ACTION_INSERT = "INSERT INTO '{prefix}actions' (time, actor_uuid, actor_name, type, acted_uuid, acted_name, action) VALUES(?, ?, ?, ?, ?, ?, ?)";
     private static final String ACTION_SELECT_ALL = "SELECT * FROM '{prefix}actions'";
+    private static final String ACTION_COUNT = "SELECT COUNT(*) FROM '{prefix}actions'";
+    private static final String ACTION_ORDER_NEWEST_FIRST = " ORDER BY time DESC, id DESC";
+
+    /** The maximum number of users to select in a single query when loading users in bulk */
+    private static final int USER_LOAD_BATCH_SIZE = 500;
 
     private final LuckPermsPlugin plugin;
     
@@ -159,22 +180,27 @@ public class SqlStorage implements StorageImplementation {
 
         if (!tableExists) {
             applySchema();
+        } else {
+            applyActionIndexes();
+            applyVersionColumns();
         }
     }
 
-    private void applySchema() throws IOException, SQLException {
-        List<String> statements;
-
+    private List<String> getSchemaStatements() throws IOException {
         String schemaFileName = "me/lucko/luckperms/schema/" + this.connectionFactory.getImplementationName().toLowerCase() + ".sql";
         try (InputStream is = this.plugin.getBootstrap().getResourceStream(schemaFileName)) {
             if (is == null) {
                 throw new IOException("Couldn't locate schema file for " + this.connectionFactory.getImplementationName());
             }
 
-            statements = SchemaReader.getStatements(is).stream()
+            return SchemaReader.getStatements(is).stream()
                     .map(this.statementProcessor)
                     .collect(Collectors.toList());
         }
+    }
+
+    private void applySchema() throws IOException, SQLException {
+        List<String> statements = getSchemaStatements();
 
         try (Connection connection = this.connectionFactory.getConnection()) {
             boolean utf8mb4Unsupported = false;
@@ -208,6 +234,54 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    /**
+     * Creates the indexes on the actions table for installs which created
+     * their schema before the indexes were added.
+     */
+    private void applyActionIndexes() throws IOException, SQLException {
+        String table = this.statementProcessor.apply("{prefix}actions");
+
+        try (Connection connection = this.connectionFactory.getConnection()) {
+            if (!tableExists(connection, table) || isColumnIndexed(connection, table, "time")) {
+                return;
+            }
+
+            List<String> statements = getSchemaStatements().stream()
+                    .filter(query -> query.startsWith("CREATE INDEX"))
+                    .filter(query -> {
+                        String on = query.substring(query.indexOf(" ON ") + 4);
+                        return on.substring(1).startsWith(table + on.charAt(0));
+                    })
+                    .collect(Collectors.toList());
+
+            try (Statement s = connection.createStatement()) {
+                for (String query : statements) {
+                    s.addBatch(query);
+                }
+                s.executeBatch();
+            }
+        }
+    }
+
+    /**
+     * Adds the version columns to the players, groups and tracks tables for
+     * installs which created their schema before the columns were added.
+     */
+    private void applyVersionColumns() throws SQLException {
+        try (Connection connection = this.connectionFactory.getConnection()) {
+            for (String name : new String[]{"players", "groups", "tracks"}) {
+                String table = this.statementProcessor.apply("{prefix}" + name);
+                if (!tableExists(connection, table) || columnExists(connection, table, "version")) {
+                    continue;
+                }
+
+                try (Statement s = connection.createStatement()) {
+                    s.execute(this.statementProcessor.apply("ALTER TABLE '{prefix}" + name + "' ADD COLUMN version BIGINT NOT NULL DEFAULT 0"));
+                }
+            }
+        }
+    }
+
     @Override
     public void shutdown() {
         try {
@@ -247,20 +321,69 @@ public class SqlStorage implements StorageImplementation {
         return log.build();
     }
 
+    @Override
+    public LogPage getLogPage(ActionFilter filter, int pageNumber, int pageSize) throws SQLException {
+        try (Connection c = this.connectionFactory.getConnection()) {
+            int totalEntries = 0;
+            try (PreparedStatement ps = buildActionQuery(ACTION_COUNT, filter).build(c, this.statementProcessor)) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        totalEntries = rs.getInt(1);
+                    }
+                }
+            }
+
+            return LogPage.create(pageNumber, pageSize, totalEntries, (offset, limit) -> {
+                PreparedStatementBuilder query = buildActionQuery(ACTION_SELECT_ALL, filter)
+                        .append(ACTION_ORDER_NEWEST_FIRST)
+                        .append(" LIMIT " + limit + " OFFSET " + offset);
+
+                List<LoggedAction> actions = new ArrayList<>(limit);
+                try (PreparedStatement ps = query.build(c, this.statementProcessor)) {
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            actions.add(readAction(rs));
+                        }
+                    }
+                }
+                return actions;
+            });
+        }
+    }
+
     @Override
     public void applyBulkUpdate(BulkUpdate bulkUpdate) throws SQLException {
         try (Connection c = this.connectionFactory.getConnection()) {
             if (bulkUpdate.getDataType().isIncludingUsers()) {
                 String table = this.statementProcessor.apply("{prefix}user_permissions");
+                int updated;
                 try (PreparedStatement ps = bulkUpdate.buildAsSql().build(c, q -> q.replace("{table}", table))) {
-                    ps.execute();
+                    updated = ps.executeUpdate();
+                }
+
+                if (updated != 0) {
+                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_UPDATE_ALL_VERSIONS))) {
+                        ps.execute();
+                    }
+                }
+
+                // the remote data of any loaded user may have changed
+                for (User user : this.plugin.getUserManager().getAll().values()) {
+                    user.normalData().invalidateChanges();
                 }
             }
 
             if (bulkUpdate.getDataType().isIncludingGroups()) {
                 String table = this.statementProcessor.apply("{prefix}group_permissions");
+                int updated;
                 try (PreparedStatement ps = bulkUpdate.buildAsSql().build(c, q -> q.replace("{table}", table))) {
-                    ps.execute();
+                    updated = ps.executeUpdate();
+                }
+
+                if (updated != 0) {
+                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_UPDATE_ALL_VERSIONS))) {
+                        ps.execute();
+                    }
                 }
             }
         }
@@ -285,35 +408,135 @@ public class SqlStorage implements StorageImplementation {
                 }
             }
 
-            // update username & primary group
-            if (primaryGroup == null) {
-                primaryGroup = GroupManager.DEFAULT_GROUP_NAME;
-            }
-            user.getPrimaryGroup().setStoredValue(primaryGroup);
+            applyUserData(user, nodes, primaryGroup, savedUsername);
+        } finally {
+            user.getIoLock().unlock();
+        }
+        return user;
+    }
 
-            // Update their username to what was in the storage if the one in the local instance is null
-            user.setUsername(savedUsername, true);
+    @Override
+    public LoginResult loginUser(UUID uniqueId, String username) throws SQLException {
+        String savedUsername = username.toLowerCase();
 
-            if (!nodes.isEmpty()) {
-                user.setNodes(DataType.NORMAL, nodes.stream().map(SqlNode::toNode));
+        User user = this.plugin.getUserManager().getOrMake(uniqueId, username);
+        user.getIoLock().lock();
+        try {
+            PlayerSaveResult saveResult;
+            List<SqlNode> nodes;
+            String primaryGroup = null;
 
-                // Save back to the store if data they were given any defaults or had permissions expire
-                if (this.plugin.getUserManager().giveDefaultIfNeeded(user, false) | user.auditTemporaryNodes()) {
-                    // This should be fine, as the lock will be acquired by the same thread.
-                    saveUser(user);
+            // save the player data & read back the user in a single connection
+            try (Connection c = this.connectionFactory.getConnection()) {
+                boolean transaction = this.connectionFactory.hasExclusiveConnections();
+                if (transaction) {
+                    c.setAutoCommit(false);
                 }
+                try {
+                    SqlPlayerData playerData = selectPlayerData(c, uniqueId);
+                    if (playerData != null) {
+                        primaryGroup = playerData.primaryGroup;
+                    }
 
-            } else {
-                if (this.plugin.getUserManager().shouldSave(user)) {
-                    user.clearNodes(DataType.NORMAL, null, true);
-                    user.getPrimaryGroup().setStoredValue(null);
-                    this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+                    saveResult = savePlayerData(c, uniqueId, savedUsername, playerData == null ? null : playerData.username);
+                    nodes = selectUserPermissions(new ArrayList<>(), c, uniqueId);
+
+                    if (transaction) {
+                        c.commit();
+                    }
+                } catch (SQLException | RuntimeException e) {
+                    if (transaction) {
+                        c.rollback();
+                    }
+                    throw e;
+                } finally {
+                    if (transaction) {
+                        c.setAutoCommit(true);
+                    }
                 }
             }
+
+            applyUserData(user, nodes, primaryGroup, savedUsername);
+            return new LoginResult(saveResult, user);
         } finally {
             user.getIoLock().unlock();
         }
-        return user;
+    }
+
+    @Override
+    public Map<UUID, User> loadUsers(Set<UUID> uniqueIds) throws SQLException {
+        Map<UUID, User> users = new HashMap<>();
+        // each batch locks all of its users at once, so they must always be
+        // locked in the same order to avoid deadlocking with other loads
+        List<UUID> sortedIds = new ArrayList<>(uniqueIds);
+        sortedIds.sort(Comparator.naturalOrder());
+
+        for (List<UUID> batch : Iterators.divideIterable(sortedIds, USER_LOAD_BATCH_SIZE)) {
+            List<User> batchUsers = new ArrayList<>(batch.size());
+            for (UUID uniqueId : batch) {
+                batchUsers.add(this.plugin.getUserManager().getOrMake(uniqueId));
+            }
+
+            batchUsers.forEach(user -> user.getIoLock().lock());
+            try {
+                Map<String, List<SqlNode>> nodes = new HashMap<>();
+                Map<String, SqlPlayerData> playerData = new HashMap<>();
+
+                try (Connection c = this.connectionFactory.getConnection()) {
+                    selectUserPermissions(nodes, c, batch);
+                    selectPlayerData(playerData, c, batch);
+                }
+
+                for (User user : batchUsers) {
+                    String uuid = user.getUniqueId().toString();
+                    List<SqlNode> userNodes = nodes.getOrDefault(uuid, Collections.emptyList());
+                    SqlPlayerData userPlayerData = playerData.get(uuid);
+
+                    if (userPlayerData != null) {
+                        applyUserData(user, userNodes, userPlayerData.primaryGroup, userPlayerData.username);
+                    } else {
+                        applyUserData(user, userNodes, null, null);
+                    }
+                    users.put(user.getUniqueId(), user);
+                }
+            } finally {
+                batchUsers.forEach(user -> user.getIoLock().unlock());
+            }
+        }
+        return users;
+    }
+
+    private void applyUserData(User user, List<SqlNode> nodes, String primaryGroup, String savedUsername) throws SQLException {
+        // stop tracking changes until the local data matches the remote data
+        user.normalData().invalidateChanges();
+
+        // update username & primary group
+        if (primaryGroup == null) {
+            primaryGroup = GroupManager.DEFAULT_GROUP_NAME;
+        }
+        user.getPrimaryGroup().setStoredValue(primaryGroup);
+
+        // Update their username to what was in the storage if the one in the local instance is null
+        user.setUsername(savedUsername, true);
+
+        if (!nodes.isEmpty()) {
+            user.setNodes(DataType.NORMAL, nodes.stream().map(SqlNode::toNode));
+            user.normalData().discardChanges();
+
+            // Save back to the store if data they were given any defaults or had permissions expire
+            if (this.plugin.getUserManager().giveDefaultIfNeeded(user, false) | user.auditTemporaryNodes()) {
+                // This should be fine, as the lock will be acquired by the same thread.
+                saveUser(user);
+            }
+
+        } else {
+            if (this.plugin.getUserManager().shouldSave(user)) {
+                user.clearNodes(DataType.NORMAL, null, true);
+                user.normalData().discardChanges();
+                user.getPrimaryGroup().setStoredValue(null);
+                this.plugin.getUserManager().giveDefaultIfNeeded(user, false);
+            }
+        }
     }
 
     @Override
@@ -324,30 +547,52 @@ public class SqlStorage implements StorageImplementation {
                 try (Connection c = this.connectionFactory.getConnection()) {
                     deleteUser(c, user.getUniqueId());
                 }
+                user.normalData().invalidateChanges();
                 return;
             }
 
-            Set<SqlNode> remote;
+            Difference<Node> changes = user.normalData().exportChanges();
             try (Connection c = this.connectionFactory.getConnection()) {
-                remote = selectUserPermissions(new HashSet<>(), c, user.getUniqueId());
-            }
-
-            Set<SqlNode> local = user.normalData().asList().stream().map(SqlNode::fromNode).collect(Collectors.toSet());
-            Set<SqlNode> missingFromRemote = getMissingFromRemote(local, remote);
-            Set<SqlNode> missingFromLocal = getMissingFromLocal(local, remote);
-
-            try (Connection c = this.connectionFactory.getConnection()) {
-                updateUserPermissions(c, user.getUniqueId(), missingFromRemote, missingFromLocal);
-                insertPlayerData(c, user.getUniqueId(), new SqlPlayerData(
-                        user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME),
-                        user.getUsername().orElse("null").toLowerCase()
-                ));
+                if (this.connectionFactory.hasExclusiveConnections()) {
+                    c.setAutoCommit(false);
+                    try {
+                        saveUserData(c, user, changes);
+                        c.commit();
+                    } catch (SQLException | RuntimeException e) {
+                        c.rollback();
+                        throw e;
+                    } finally {
+                        c.setAutoCommit(true);
+                    }
+                } else {
+                    saveUserData(c, user, changes);
+                }
+            } catch (SQLException | RuntimeException e) {
+                // we don't know which (if any) of the changes were written
+                user.normalData().invalidateChanges();
+                throw e;
             }
         } finally {
             user.getIoLock().unlock();
         }
     }
 
+    private void saveUserData(Connection c, User user, Difference<Node> changes) throws SQLException {
+        if (changes == null || !applyUserPermissionChanges(c, user.getUniqueId(), changes)) {
+            // the remote data isn't known, so compare against it directly
+            user.normalData().discardChanges();
+
+            Set<SqlNode> remote = selectUserPermissions(new HashSet<>(), c, user.getUniqueId());
+            Set<SqlNode> local = user.normalData().asList().stream().map(SqlNode::fromNode).collect(Collectors.toSet());
+            updateUserPermissions(c, user.getUniqueId(), getMissingFromRemote(local, remote), getMissingFromLocal(local, remote));
+        }
+
+        insertPlayerData(c, user.getUniqueId(), new SqlPlayerData(
+                user.getPrimaryGroup().getStoredValue().orElse(GroupManager.DEFAULT_GROUP_NAME),
+                user.getUsername().orElse("null").toLowerCase()
+        ));
+    }
+
     @Override
     public Set<UUID> getUniqueUsers() throws SQLException {
         Set<UUID> uuids = new HashSet<>();
@@ -467,6 +712,7 @@ public class SqlStorage implements StorageImplementation {
             if (group.normalData().isEmpty()) {
                 try (Connection c = this.connectionFactory.getConnection()) {
                     deleteGroupPermissions(c, group.getName());
+                    updateGroupVersion(c, group.getName());
                 }
                 return;
             }
@@ -483,6 +729,7 @@ public class SqlStorage implements StorageImplementation {
             if (!missingFromLocal.isEmpty() || !missingFromRemote.isEmpty()) {
                 try (Connection c = this.connectionFactory.getConnection()) {
                     updateGroupPermissions(c, group.getName(), missingFromRemote, missingFromLocal);
+                    updateGroupVersion(c, group.getName());
                 }
             }
         } finally {
@@ -635,26 +882,27 @@ public class SqlStorage implements StorageImplementation {
     @Override
     public PlayerSaveResult savePlayerData(UUID uniqueId, String username) throws SQLException {
         username = username.toLowerCase();
+        try (Connection c = this.connectionFactory.getConnection()) {
+            SqlPlayerData playerData = selectPlayerData(c, uniqueId);
+            return savePlayerData(c, uniqueId, username, playerData == null ? null : playerData.username);
+        }
+    }
 
-        // find any existing mapping
-        String oldUsername = getPlayerName(uniqueId);
-
+    private PlayerSaveResult savePlayerData(Connection c, UUID uniqueId, String username, String oldUsername) throws SQLException {
         // do the insert
         if (!username.equals(oldUsername)) {
-            try (Connection c = this.connectionFactory.getConnection()) {
-                if (oldUsername != null) {
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_UPDATE_USERNAME_FOR_UUID))) {
-                        ps.setString(1, username);
-                        ps.setString(2, uniqueId.toString());
-                        ps.execute();
-                    }
-                } else {
-                    try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_INSERT))) {
-                        ps.setString(1, uniqueId.toString());
-                        ps.setString(2, username);
-                        ps.setString(3, GroupManager.DEFAULT_GROUP_NAME);
-                        ps.execute();
-                    }
+            if (oldUsername != null) {
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_UPDATE_USERNAME_FOR_UUID))) {
+                    ps.setString(1, username);
+                    ps.setString(2, uniqueId.toString());
+                    ps.execute();
+                }
+            } else {
+                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_INSERT))) {
+                    ps.setString(1, uniqueId.toString());
+                    ps.setString(2, username);
+                    ps.setString(3, GroupManager.DEFAULT_GROUP_NAME);
+                    ps.execute();
                 }
             }
         }
@@ -662,26 +910,22 @@ public class SqlStorage implements StorageImplementation {
         PlayerSaveResultImpl result = PlayerSaveResultImpl.determineBaseResult(username, oldUsername);
 
         Set<UUID> conflicting = new HashSet<>();
-        try (Connection c = this.connectionFactory.getConnection()) {
-            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_ALL_UUIDS_BY_USERNAME))) {
-                ps.setString(1, username);
-                ps.setString(2, uniqueId.toString());
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        conflicting.add(UUID.fromString(rs.getString("uuid")));
-                    }
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_ALL_UUIDS_BY_USERNAME))) {
+            ps.setString(1, username);
+            ps.setString(2, uniqueId.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    conflicting.add(UUID.fromString(rs.getString("uuid")));
                 }
             }
         }
 
         if (!conflicting.isEmpty()) {
             // remove the mappings for conflicting uuids
-            try (Connection c = this.connectionFactory.getConnection()) {
-                try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_DELETE_ALL_UUIDS_BY_USERNAME))) {
-                    ps.setString(1, username);
-                    ps.setString(2, uniqueId.toString());
-                    ps.execute();
-                }
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_DELETE_ALL_UUIDS_BY_USERNAME))) {
+                ps.setString(1, username);
+                ps.setString(2, uniqueId.toString());
+                ps.execute();
             }
             result = result.withOtherUuidsPresent(conflicting);
         }
@@ -730,6 +974,50 @@ public class SqlStorage implements StorageImplementation {
         return null;
     }
 
+    @Override
+    public Map<String, Long> getGroupVersions() throws SQLException {
+        return selectVersions(GROUP_SELECT_ALL_VERSIONS);
+    }
+
+    @Override
+    public Map<String, Long> getTrackVersions() throws SQLException {
+        return selectVersions(TRACK_SELECT_ALL_VERSIONS);
+    }
+
+    @Override
+    public Map<UUID, Long> getUserVersions(Set<UUID> uniqueIds) throws SQLException {
+        Map<UUID, Long> versions = new HashMap<>();
+        try (Connection c = this.connectionFactory.getConnection()) {
+            for (List<UUID> batch : Iterators.divideIterable(uniqueIds, USER_LOAD_BATCH_SIZE)) {
+                try (PreparedStatement ps = prepareUuidQuery(c, PLAYER_SELECT_VERSION_BY_UUID_MULTIPLE, batch)) {
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            UUID uniqueId = Uuids.fromString(rs.getString("uuid"));
+                            if (uniqueId != null) {
+                                versions.put(uniqueId, rs.getLong("version"));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return versions;
+    }
+
+    private Map<String, Long> selectVersions(String query) throws SQLException {
+        Map<String, Long> versions = new HashMap<>();
+        try (Connection c = this.connectionFactory.getConnection()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(query))) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        versions.put(rs.getString("name").toLowerCase(), rs.getLong("version"));
+                    }
+                }
+            }
+        }
+        return versions;
+    }
+
     private static void writeAction(Action action, PreparedStatement ps) throws SQLException {
         ps.setLong(1, action.getTimestamp().getEpochSecond());
         ps.setString(2, action.getSource().getUniqueId().toString());
@@ -740,6 +1028,35 @@ public class SqlStorage implements StorageImplementation {
         ps.setString(7, action.getDescription());
     }
 
+    private static PreparedStatementBuilder buildActionQuery(String select, ActionFilter filter) {
+        PreparedStatementBuilder builder = new PreparedStatementBuilder().append(select);
+        switch (filter.getType()) {
+            case ALL:
+                break;
+            case SOURCE:
+                builder.append(" WHERE actor_uuid = ").variable(filter.getUniqueId().toString());
+                break;
+            case USER:
+                builder.append(" WHERE acted_uuid = ").variable(filter.getUniqueId().toString())
+                        .append(" AND type = ").variable(Character.toString(LoggedAction.getTypeCharacter(filter.getType().getTargetType())));
+                break;
+            case GROUP:
+            case TRACK:
+                builder.append(" WHERE acted_name = ").variable(filter.getValue())
+                        .append(" AND type = ").variable(Character.toString(LoggedAction.getTypeCharacter(filter.getType().getTargetType())));
+                break;
+            case SEARCH:
+                String pattern = "%" + filter.getValue().toLowerCase() + "%";
+                builder.append(" WHERE LOWER(actor_name) LIKE ").variable(pattern)
+                        .append(" OR LOWER(acted_name) LIKE ").variable(pattern)
+                        .append(" OR LOWER(action) LIKE ").variable(pattern);
+                break;
+            default:
+                throw new AssertionError(filter.getType());
+        }
+        return builder;
+    }
+
     private static LoggedAction readAction(ResultSet rs) throws SQLException {
         final String actedUuid = rs.getString("acted_uuid");
         return LoggedAction.build()
@@ -812,6 +1129,26 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    private void selectUserPermissions(Map<String, List<SqlNode>> nodes, Connection c, List<UUID> users) throws SQLException {
+        try (PreparedStatement ps = prepareUuidQuery(c, USER_PERMISSIONS_SELECT_MULTIPLE, users)) {
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    nodes.computeIfAbsent(rs.getString("uuid"), x -> new ArrayList<>()).add(readNode(rs));
+                }
+            }
+        }
+    }
+
+    private void selectPlayerData(Map<String, SqlPlayerData> playerData, Connection c, List<UUID> users) throws SQLException {
+        try (PreparedStatement ps = prepareUuidQuery(c, PLAYER_SELECT_BY_UUID_MULTIPLE, users)) {
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    playerData.putIfAbsent(rs.getString("uuid"), new SqlPlayerData(rs.getString("primary_group"), rs.getString("username")));
+                }
+            }
+        }
+    }
+
     private void deleteUser(Connection c, UUID user) throws SQLException {
         try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_DELETE))) {
             ps.setString(1, user.toString());
@@ -846,6 +1183,29 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    private boolean applyUserPermissionChanges(Connection c, UUID user, Difference<Node> changes) throws SQLException {
+        if (!changes.getRemoved().isEmpty()) {
+            try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(USER_PERMISSIONS_DELETE_SPECIFIC_PROPS))) {
+                for (Node node : changes.getRemoved()) {
+                    ps.setString(1, user.toString());
+                    writeNode(SqlNode.fromNode(node), ps);
+                    ps.addBatch();
+                }
+                for (int count : ps.executeBatch()) {
+                    if (count == 0) {
+                        // the row wasn't there - the remote data isn't what we expected it to be
+                        return false;
+                    }
+                }
+            }
+        }
+        if (!changes.getAdded().isEmpty()) {
+            Set<SqlNode> add = changes.getAdded().stream().map(SqlNode::fromNode).collect(Collectors.toSet());
+            updateUserPermissions(c, user, add, Collections.emptySet());
+        }
+        return true;
+    }
+
     private void insertPlayerData(Connection c, UUID user, SqlPlayerData data) throws SQLException {
         boolean hasPrimaryGroupSaved;
         try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(PLAYER_SELECT_PRIMARY_GROUP_BY_UUID))) {
@@ -885,6 +1245,13 @@ public class SqlStorage implements StorageImplementation {
         return groups;
     }
 
+    private void updateGroupVersion(Connection c, String group) throws SQLException {
+        try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_UPDATE_VERSION))) {
+            ps.setString(1, group);
+            ps.execute();
+        }
+    }
+
     private <T extends Collection<SqlNode>> T selectGroupPermissions(T nodes, Connection c, String group) throws SQLException {
         try (PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(GROUP_PERMISSIONS_SELECT))) {
             ps.setString(1, group);
@@ -985,6 +1352,25 @@ public class SqlStorage implements StorageImplementation {
         return tracks;
     }
 
+    private PreparedStatement prepareUuidQuery(Connection c, String query, List<UUID> uuids) throws SQLException {
+        PreparedStatement ps = c.prepareStatement(this.statementProcessor.apply(query + placeholders(uuids.size())));
+        for (int i = 0; i < uuids.size(); i++) {
+            ps.setString(i + 1, uuids.get(i).toString());
+        }
+        return ps;
+    }
+
+    private static String placeholders(int count) {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < count; i++) {
+            if (i != 0) {
+                sb.append(", ");
+            }
+            sb.append('?');
+        }
+        return sb.append(')').toString();
+    }
+
     private static boolean tableExists(Connection connection, String table) throws SQLException {
         try (ResultSet rs = connection.getMetaData().getTables(null, null, "%", null)) {
             while (rs.next()) {
@@ -996,6 +1382,44 @@ public class SqlStorage implements StorageImplementation {
         }
     }
 
+    private static boolean columnExists(Connection connection, String table, String column) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getTables(null, null, "%", null)) {
+            while (rs.next()) {
+                if (!rs.getString(3).equalsIgnoreCase(table)) {
+                    continue;
+                }
+
+                try (ResultSet columns = connection.getMetaData().getColumns(rs.getString(1), rs.getString(2), rs.getString(3), "%")) {
+                    while (columns.next()) {
+                        if (column.equalsIgnoreCase(columns.getString("COLUMN_NAME"))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
+    private static boolean isColumnIndexed(Connection connection, String table, String column) throws SQLException {
+        try (ResultSet rs = connection.getMetaData().getTables(null, null, "%", null)) {
+            while (rs.next()) {
+                if (!rs.getString(3).equalsIgnoreCase(table)) {
+                    continue;
+                }
+
+                try (ResultSet indexes = connection.getMetaData().getIndexInfo(rs.getString(1), rs.getString(2), rs.getString(3), false, true)) {
+                    while (indexes.next()) {
+                        if (indexes.getShort("ORDINAL_POSITION") == 1 && column.equalsIgnoreCase(indexes.getString("COLUMN_NAME"))) {
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+    }
+
     private static final class SqlPlayerData {
         private final String primaryGroup;
         private final String username;
@@ -49,4 +49,16 @@ public interface ConnectionFactory {
 
     Connection getConnection() throws SQLException;
 
+    /**
+     * Gets whether each connection returned by {@link #getConnection()} is used
+     * exclusively by the caller until it is closed.
+     *
+     * <p>Transactions should only be used on connections which are not shared.</p>
+     *
+     * @return true if connections are exclusive to the caller
+     */
+    default boolean hasExclusiveConnections() {
+        return false;
+    }
+
 }
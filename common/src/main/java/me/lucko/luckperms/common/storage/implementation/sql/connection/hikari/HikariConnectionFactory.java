@@ -28,6 +28,8 @@ package me.lucko.luckperms.common.storage.implementation.sql.connection.hikari;
 import com.google.common.collect.ImmutableList;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.util.PropertyElf;
+import com.zaxxer.hikari.util.UtilityElf;
 
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 import me.lucko.luckperms.common.plugin.logging.PluginLogger;
@@ -43,6 +45,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
+import javax.sql.DataSource;
+
 public abstract class HikariConnectionFactory implements ConnectionFactory {
 
     protected final StorageCredentials configuration;
@@ -155,6 +159,34 @@ public abstract class HikariConnectionFactory implements ConnectionFactory {
         return connection;
     }
 
+    /**
+     * Opens a new connection to the database which isn't managed by the pool.
+     *
+     * <p>This is intended for uses which hold on to a connection indefinitely,
+     * and would otherwise take a connection away from the pool. The caller is
+     * responsible for closing it.</p>
+     *
+     * @return a new connection
+     * @throws SQLException if the connection couldn't be opened
+     */
+    public Connection createUnpooledConnection() throws SQLException {
+        if (this.hikari == null) {
+            throw new SQLException("Unable to open a connection. (hikari is null)");
+        }
+
+        // configure the data source in the same way as hikari does for the pool
+        DataSource dataSource = UtilityElf.createInstance(this.hikari.getDataSourceClassName(), DataSource.class);
+        PropertyElf.setTargetFromProperties(dataSource, this.hikari.getDataSourceProperties());
+
+        String username = this.hikari.getUsername();
+        return username == null ? dataSource.getConnection() : dataSource.getConnection(username, this.hikari.getPassword());
+    }
+
+    @Override
+    public boolean hasExclusiveConnections() {
+        return true;
+    }
+
     private static void handleLinkageError(LinkageError linkageError, LuckPermsPlugin plugin) {
         List<String> noteworthyClasses = ImmutableList.of(
                 "org.slf4j.LoggerFactory",
@@ -0,0 +1,88 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.storage.misc;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Utilities for working with the version stamps of objects held in storage.
+ *
+ * <p>A version stamp is a 64 bit value which changes whenever the stored data
+ * of an object changes. Remote storage types keep a version alongside each
+ * object which is changed on every write, whilst the file based types derive
+ * a stamp by {@link #hash(Object...) hashing} what they already have to hand.</p>
+ */
+public final class VersionStamps {
+    private VersionStamps() {}
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    /**
+     * Hashes the fields of a stored entry.
+     *
+     * @param fields the fields
+     * @return the hash
+     */
+    public static long hash(Object... fields) {
+        Hasher hasher = HASH_FUNCTION.newHasher();
+        for (Object field : fields) {
+            hasher.putString(String.valueOf(field), StandardCharsets.UTF_8);
+            hasher.putByte((byte) 0);
+        }
+        return hasher.hash().asLong();
+    }
+
+    /**
+     * Gets the objects which were added, removed or changed between two sets of stamps.
+     *
+     * @param previous the previous stamps
+     * @param current the current stamps
+     * @param <K> the object identifier type
+     * @return the identifiers of the objects which changed
+     */
+    public static <K> Set<K> changed(Map<K, Long> previous, Map<K, Long> current) {
+        Set<K> changed = new HashSet<>();
+        for (Map.Entry<K, Long> entry : current.entrySet()) {
+            if (!entry.getValue().equals(previous.get(entry.getKey()))) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (K key : previous.keySet()) {
+            if (!current.containsKey(key)) {
+                changed.add(key);
+            }
+        }
+        return changed;
+    }
+
+}
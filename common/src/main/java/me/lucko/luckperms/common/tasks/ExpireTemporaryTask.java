@@ -30,6 +30,9 @@ import me.lucko.luckperms.common.model.PermissionHolder;
 import me.lucko.luckperms.common.model.User;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
 
+import java.util.HashSet;
+import java.util.Set;
+
 public class ExpireTemporaryTask implements Runnable {
     private final LuckPermsPlugin plugin;
 
@@ -39,14 +42,14 @@ public class ExpireTemporaryTask implements Runnable {
 
     @Override
     public void run() {
-        boolean groupChanges = false;
+        Set<String> groupChanges = new HashSet<>();
         for (Group group : this.plugin.getGroupManager().getAll().values()) {
             if (shouldSkip(group)) {
                 continue;
             }
             if (group.auditTemporaryNodes()) {
                 this.plugin.getStorage().saveGroup(group);
-                groupChanges = true;
+                groupChanges.add(group.getName());
             }
         }
 
@@ -59,9 +62,8 @@ public class ExpireTemporaryTask implements Runnable {
             }
         }
 
-        if (groupChanges) {
-            this.plugin.getGroupManager().invalidateAllGroupCaches();
-            this.plugin.getUserManager().invalidateAllUserCaches();
+        if (!groupChanges.isEmpty()) {
+            this.plugin.getInheritanceGraphFactory().getDependencyIndex().invalidateDependents(groupChanges);
         }
     }
 
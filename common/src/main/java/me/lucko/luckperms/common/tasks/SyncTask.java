@@ -28,19 +28,36 @@ package me.lucko.luckperms.common.tasks;
 import me.lucko.luckperms.common.cache.BufferedRequest;
 import me.lucko.luckperms.common.model.manager.group.GroupManager;
 import me.lucko.luckperms.common.plugin.LuckPermsPlugin;
+import me.lucko.luckperms.common.storage.Storage;
+import me.lucko.luckperms.common.storage.misc.VersionStamps;
 
 import net.luckperms.api.event.cause.CreationCause;
 
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
  * System wide sync task for LuckPerms.
  *
  * <p>Ensures that all local data is consistent with the storage.</p>
+ *
+ * <p>If the storage implementation supports version stamps, the stamps seen
+ * during each sync are remembered, and subsequent syncs only reload the groups,
+ * tracks and users which have changed since.</p>
  */
 public class SyncTask implements Runnable {
     private final LuckPermsPlugin plugin;
 
+    /** The version stamps seen during the last sync, or null if unknown */
+    private Map<String, Long> groupVersions = null;
+    private Map<String, Long> trackVersions = null;
+    private Map<UUID, Long> userVersions = null;
+
     public SyncTask(LuckPermsPlugin plugin) {
         this.plugin = plugin;
     }
@@ -51,11 +68,39 @@ public class SyncTask implements Runnable {
      * <p>Called <b>async</b>.</p>
      */
     @Override
-    public void run() {
+    public synchronized void run() {
         if (this.plugin.getEventDispatcher().dispatchPreSync(false)) {
             return;
         }
 
+        Storage storage = this.plugin.getStorage();
+
+        // read the version stamps before loading any data, so that anything which
+        // changes whilst the data is being loaded is picked up by the next sync
+        Map<String, Long> groupVersions = storage.getGroupVersions().join();
+        Map<String, Long> trackVersions = storage.getTrackVersions().join();
+
+        Set<UUID> users = new HashSet<>(this.plugin.getUserManager().getAll().keySet());
+        users.addAll(this.plugin.getBootstrap().getOnlinePlayers());
+        Map<UUID, Long> userVersions = storage.getUserVersions(users).join();
+
+        if (this.groupVersions != null && this.trackVersions != null && this.userVersions != null &&
+                groupVersions != null && trackVersions != null && userVersions != null) {
+            syncChanges(groupVersions, trackVersions, users, userVersions);
+        } else {
+            syncAll();
+        }
+
+        this.groupVersions = groupVersions;
+        this.trackVersions = trackVersions;
+        this.userVersions = userVersions;
+
+        this.plugin.performPlatformDataSync();
+
+        this.plugin.getEventDispatcher().dispatchPostSync();
+    }
+
+    private void syncAll() {
         // Reload all groups
         this.plugin.getStorage().loadAllGroups().join();
         if (!this.plugin.getGroupManager().isLoaded(GroupManager.DEFAULT_GROUP_NAME)) {
@@ -68,26 +113,69 @@ public class SyncTask implements Runnable {
         // Reload all online users.
         this.plugin.getUserManager().loadAllUsers().join();
 
-        this.plugin.performPlatformDataSync();
-
         // Just to be sure...
         this.plugin.getGroupManager().invalidateAllGroupCaches();
         this.plugin.getUserManager().invalidateAllUserCaches();
+    }
 
-        this.plugin.getEventDispatcher().dispatchPostSync();
+    private void syncChanges(Map<String, Long> groupVersions, Map<String, Long> trackVersions, Set<UUID> users, Map<UUID, Long> userVersions) {
+        Storage storage = this.plugin.getStorage();
+
+        // Reload the groups which have changed, and unload those which have been deleted
+        Set<String> changedGroups = VersionStamps.changed(this.groupVersions, groupVersions);
+        CompletableFuture.allOf(changedGroups.stream()
+                .filter(groupVersions::containsKey)
+                .map(storage::loadGroup)
+                .toArray(CompletableFuture[]::new)
+        ).join();
+        for (String group : changedGroups) {
+            if (!groupVersions.containsKey(group)) {
+                this.plugin.getGroupManager().unload(group);
+            }
+        }
+        if (!this.plugin.getGroupManager().isLoaded(GroupManager.DEFAULT_GROUP_NAME)) {
+            storage.createAndLoadGroup(GroupManager.DEFAULT_GROUP_NAME, CreationCause.INTERNAL).join();
+        }
+
+        // Reload the tracks which have changed, and unload those which have been deleted
+        Set<String> changedTracks = VersionStamps.changed(this.trackVersions, trackVersions);
+        CompletableFuture.allOf(changedTracks.stream()
+                .filter(trackVersions::containsKey)
+                .map(storage::loadTrack)
+                .toArray(CompletableFuture[]::new)
+        ).join();
+        for (String track : changedTracks) {
+            if (!trackVersions.containsKey(track)) {
+                this.plugin.getTrackManager().unload(track);
+            }
+        }
+
+        // Reload the users which have changed
+        Set<UUID> changedUsers = new HashSet<>();
+        for (UUID uniqueId : users) {
+            if (!Objects.equals(this.userVersions.get(uniqueId), userVersions.get(uniqueId))) {
+                changedUsers.add(uniqueId);
+            }
+        }
+        if (!changedUsers.isEmpty()) {
+            storage.loadUsers(changedUsers).join();
+        }
+
+        // Invalidate the caches of anything which inherits from the changed groups
+        this.plugin.getInheritanceGraphFactory().getDependencyIndex().invalidateDependents(changedGroups);
     }
 
     public static class Buffer extends BufferedRequest<Void> {
-        private final LuckPermsPlugin plugin;
+        private final SyncTask task;
 
         public Buffer(LuckPermsPlugin plugin) {
             super(500L, TimeUnit.MILLISECONDS, plugin.getBootstrap().getScheduler());
-            this.plugin = plugin;
+            this.task = new SyncTask(plugin);
         }
 
         @Override
         protected Void perform() {
-            new SyncTask(this.plugin).run();
+            this.task.run();
             return null;
         }
     }
@@ -0,0 +1,70 @@
+/*
+ * This file is part of LuckPerms, licensed under the MIT License.
+ *
+ *  Copyright (c) lucko (Luck) <luck@lucko.me>
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+
+package me.lucko.luckperms.common.util;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Records the net changes made to a collection of elements.
+ *
+ * <p>Recording the addition of an element which was previously recorded as
+ * removed (or vice versa) cancels out the earlier change.</p>
+ *
+ * <p>This class is not thread safe.</p>
+ *
+ * @param <T> the element type
+ */
+public final class Difference<T> {
+    private final Set<T> added = new LinkedHashSet<>();
+    private final Set<T> removed = new LinkedHashSet<>();
+
+    public Set<T> getAdded() {
+        return Collections.unmodifiableSet(this.added);
+    }
+
+    public Set<T> getRemoved() {
+        return Collections.unmodifiableSet(this.removed);
+    }
+
+    public boolean isEmpty() {
+        return this.added.isEmpty() && this.removed.isEmpty();
+    }
+
+    public void recordAddition(T element) {
+        if (!this.removed.remove(element)) {
+            this.added.add(element);
+        }
+    }
+
+    public void recordRemoval(T element) {
+        if (!this.added.remove(element)) {
+            this.removed.add(element);
+        }
+    }
+
+}
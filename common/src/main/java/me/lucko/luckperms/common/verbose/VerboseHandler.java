@@ -35,11 +35,13 @@ import me.lucko.luckperms.common.verbose.event.VerboseEvent;
 
 import net.luckperms.api.query.QueryOptions;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -47,10 +49,13 @@ import java.util.concurrent.TimeUnit;
  */
 public class VerboseHandler implements AutoCloseable {
 
+    /** The maximum number of events which can be waiting to be handled */
+    private static final int BUFFER_CAPACITY = 10000;
+
     /** A map of currently registered listeners */
     private final Map<UUID, VerboseListener> listeners;
-    /** A queue of verbose events to be handled */
-    private final Queue<VerboseEvent> queue;
+    /** A bounded buffer of verbose events to be handled */
+    private final BlockingQueue<PendingEvent> buffer;
     /** If there are any listeners registered */
     private boolean listening = false;
     /** The tick task */
@@ -58,14 +63,14 @@ public class VerboseHandler implements AutoCloseable {
 
     public VerboseHandler(SchedulerAdapter scheduler) {
         this.listeners = new ConcurrentHashMap<>();
-        this.queue = new ConcurrentLinkedQueue<>();
+        this.buffer = new ArrayBlockingQueue<>(BUFFER_CAPACITY);
         this.task = scheduler.asyncRepeating(this::tick, 100, TimeUnit.MILLISECONDS);
     }
 
     /**
      * Offers permission check data to the handler, to be eventually passed onto listeners.
      *
-     * <p>The check data is added to a queue to be processed later, to avoid blocking
+     * <p>The check data is added to a buffer to be processed later, to avoid blocking
      * the main thread each time a permission check is made.</p>
      *
      * @param origin the origin of the check
@@ -81,17 +86,15 @@ public class VerboseHandler implements AutoCloseable {
         }
 
         long time = System.currentTimeMillis();
-        Throwable trace = new Throwable();
         String thread = Thread.currentThread().getName();
 
-        // add the check data to a queue to be processed later.
-        this.queue.offer(new PermissionCheckEvent(origin, checkTarget, checkQueryOptions, time, trace, thread, permission, result));
+        offer(new PermissionCheckEvent(origin, checkTarget, checkQueryOptions, time, thread, permission, result));
     }
 
     /**
      * Offers meta check data to the handler, to be eventually passed onto listeners.
      *
-     * <p>The check data is added to a queue to be processed later, to avoid blocking
+     * <p>The check data is added to a buffer to be processed later, to avoid blocking
      * the main thread each time a meta check is made.</p>
      *
      * @param origin the origin of the check
@@ -107,11 +110,38 @@ public class VerboseHandler implements AutoCloseable {
         }
 
         long time = System.currentTimeMillis();
-        Throwable trace = new Throwable();
         String thread = Thread.currentThread().getName();
 
-        // add the check data to a queue to be processed later.
-        this.queue.offer(new MetaCheckEvent(origin, checkTarget, checkQueryOptions, time, trace, thread, key, result));
+        offer(new MetaCheckEvent(origin, checkTarget, checkQueryOptions, time, thread, key, result));
+    }
+
+    private void offer(VerboseEvent event) {
+        // run the event through the listeners' filters before capturing anything expensive
+        List<VerboseListener> accepted = null;
+        for (VerboseListener listener : this.listeners.values()) {
+            if (listener.shouldRecord(event)) {
+                if (accepted == null) {
+                    accepted = new ArrayList<>(this.listeners.size());
+                }
+                accepted.add(listener);
+            }
+        }
+
+        if (accepted == null) {
+            return;
+        }
+
+        // the event is going to be recorded, so capture the trace while we're
+        // still on the thread which made the check
+        event.captureCheckTrace();
+
+        // add the check data to the buffer to be processed later.
+        // if the buffer is full, drop the event & let the listeners know.
+        if (!this.buffer.offer(new PendingEvent(event, accepted))) {
+            for (VerboseListener listener : accepted) {
+                listener.recordDropped();
+            }
+        }
     }
 
     /**
@@ -120,12 +150,13 @@ public class VerboseHandler implements AutoCloseable {
      * @param sender the sender to notify, if notify is true
      * @param filter the filter string
      * @param notify if the sender should be notified in chat on each check
+     * @param sampleRate the rate at which matching checks should be recorded
      */
-    public void registerListener(Sender sender, VerboseFilter filter, boolean notify) {
+    public void registerListener(Sender sender, VerboseFilter filter, boolean notify, int sampleRate) {
         // flush out anything before this listener was added
         flush();
 
-        this.listeners.put(sender.getUniqueId(), new VerboseListener(sender, filter, notify));
+        this.listeners.put(sender.getUniqueId(), new VerboseListener(sender, filter, notify, sampleRate));
         this.listening = true;
     }
 
@@ -146,7 +177,7 @@ public class VerboseHandler implements AutoCloseable {
         // remove listeners where the sender is no longer valid
         this.listeners.values().removeIf(l -> !l.getNotifiedSender().isValid());
 
-        // handle all events in the queue
+        // handle all events in the buffer
         flush();
 
         // update listening state
@@ -157,9 +188,12 @@ public class VerboseHandler implements AutoCloseable {
      * Flushes the pending events to listeners.
      */
     public synchronized void flush() {
-        for (VerboseEvent e; (e = this.queue.poll()) != null; ) {
-            for (VerboseListener listener : this.listeners.values()) {
-                listener.acceptEvent(e);
+        for (PendingEvent e; (e = this.buffer.poll()) != null; ) {
+            for (VerboseListener listener : e.listeners) {
+                // skip listeners which have been unregistered since the event was offered
+                if (this.listeners.get(listener.getNotifiedSender().getUniqueId()) == listener) {
+                    listener.acceptEvent(e.event);
+                }
             }
         }
     }
@@ -169,4 +203,17 @@ public class VerboseHandler implements AutoCloseable {
         this.task.cancel();
     }
 
+    /**
+     * An event waiting in the buffer, along with the listeners which accepted it.
+     */
+    private static final class PendingEvent {
+        private final VerboseEvent event;
+        private final List<VerboseListener> listeners;
+
+        PendingEvent(VerboseEvent event, List<VerboseListener> listeners) {
+            this.event = event;
+            this.listeners = listeners;
+        }
+    }
+
 }
@@ -108,37 +108,63 @@ public class VerboseListener {
     private final VerboseFilter filter;
     // if we should notify the sender
     private final boolean notify;
+    // the rate at which matching events are recorded - 1 in every n
+    private final int sampleRate;
     // the number of events we have processed
     private final AtomicInteger counter = new AtomicInteger(0);
     // the number of events we have processed and accepted, based on the filter rules for this
     // listener
     private final AtomicInteger matchedCounter = new AtomicInteger(0);
+    // the number of events which were accepted, but dropped before they could be processed
+    private final AtomicInteger droppedCounter = new AtomicInteger(0);
     // the events which passed the filter, up to a max size of #DATA_TRUNCATION
     private final List<VerboseEvent> results = new ArrayList<>(DATA_TRUNCATION / 10);
 
-    public VerboseListener(Sender notifiedSender, VerboseFilter filter, boolean notify) {
+    public VerboseListener(Sender notifiedSender, VerboseFilter filter, boolean notify, int sampleRate) {
         this.notifiedSender = notifiedSender;
         this.filter = filter;
         this.notify = notify;
+        this.sampleRate = Math.max(1, sampleRate);
     }
 
     /**
-     * Accepts and processes verbose events.
+     * Gets if the listener wants to record the given event.
      *
-     * @param event the event to process
+     * <p>This is called on the thread which made the check, before the stack
+     * trace for the event has been captured.</p>
+     *
+     * @param event the event
+     * @return true if the event should be recorded
      */
-    public void acceptEvent(VerboseEvent event) {
+    public boolean shouldRecord(VerboseEvent event) {
         // increment handled counter
         this.counter.incrementAndGet();
 
         // check if the data passes our filter
         if (!this.filter.evaluate(event)) {
-            return;
+            return false;
         }
 
-        // increment the matched filter
-        this.matchedCounter.incrementAndGet();
+        // increment the matched filter & apply sampling
+        int matched = this.matchedCounter.incrementAndGet();
+        return this.sampleRate == 1 || (matched - 1) % this.sampleRate == 0;
+    }
+
+    /**
+     * Records that an event accepted by {@link #shouldRecord(VerboseEvent)} was
+     * dropped before it could be processed.
+     */
+    public void recordDropped() {
+        this.droppedCounter.incrementAndGet();
+    }
 
+    /**
+     * Accepts and processes verbose events which have previously been
+     * accepted by {@link #shouldRecord(VerboseEvent)}.
+     *
+     * @param event the event to process
+     */
+    public void acceptEvent(VerboseEvent event) {
         // record the check, if we have space for it
         if (this.results.size() < DATA_TRUNCATION) {
             this.results.add(event);
@@ -261,7 +287,8 @@ public class VerboseListener {
         String startDate = DATE_FORMAT.format(this.startTime);
         String endDate = DATE_FORMAT.format(Instant.now());
         String duration = DurationFormatter.CONCISE.format(Duration.between(this.startTime, Instant.now()));
-        boolean truncated = this.matchedCounter.get() > this.results.size();
+        int sampled = (this.matchedCounter.get() + this.sampleRate - 1) / this.sampleRate;
+        boolean truncated = sampled > this.results.size();
 
         JObject metadata = new JObject()
                 .add("startTime", startDate)
@@ -270,7 +297,9 @@ public class VerboseListener {
                 .add("count", new JObject()
                         .add("matched", this.matchedCounter.get())
                         .add("total", this.counter.get())
+                        .add("dropped", this.droppedCounter.get())
                 )
+                .add("sampleRate", this.sampleRate)
                 .add("uploader", new JObject()
                         .add("name", this.notifiedSender.getNameWithLocation())
                         .add("uuid", this.notifiedSender.getUniqueId().toString())
@@ -46,8 +46,8 @@ public class MetaCheckEvent extends VerboseEvent {
      */
     private final String result;
 
-    public MetaCheckEvent(Origin origin, String checkTarget, QueryOptions checkQueryOptions, long checkTime, Throwable checkTrace, String checkThread, String key, String result) {
-        super(checkTarget, checkQueryOptions, checkTime, checkTrace, checkThread);
+    public MetaCheckEvent(Origin origin, String checkTarget, QueryOptions checkQueryOptions, long checkTime, String checkThread, String key, String result) {
+        super(checkTarget, checkQueryOptions, checkTime, checkThread);
         this.origin = origin;
         this.key = key;
         this.result = result;
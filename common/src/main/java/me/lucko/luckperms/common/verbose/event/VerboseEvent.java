@@ -59,20 +59,23 @@ public abstract class VerboseEvent implements VariableEvaluator {
     private final long checkTime;
 
     /**
-     * The throwable created when the check took place
+     * The name of the thread where the check took place
      */
-    private final Throwable checkTrace;
+    private final String checkThread;
 
     /**
-     * The name of the thread where the check took place
+     * The throwable created when the check took place.
+     *
+     * <p>This is only captured once the event has been accepted by a listener,
+     * as filling in the stack trace is by far the most expensive part of
+     * recording a check.</p>
      */
-    private final String checkThread;
+    private Throwable checkTrace = null;
 
-    protected VerboseEvent(String checkTarget, QueryOptions checkQueryOptions, long checkTime, Throwable checkTrace, String checkThread) {
+    protected VerboseEvent(String checkTarget, QueryOptions checkQueryOptions, long checkTime, String checkThread) {
         this.checkTarget = checkTarget;
         this.checkQueryOptions = checkQueryOptions;
         this.checkTime = checkTime;
-        this.checkTrace = checkTrace;
         this.checkThread = checkThread;
     }
 
@@ -89,9 +92,21 @@ public abstract class VerboseEvent implements VariableEvaluator {
     }
 
     public StackTraceElement[] getCheckTrace() {
+        if (this.checkTrace == null) {
+            return new StackTraceElement[0];
+        }
         return this.checkTrace.getStackTrace();
     }
 
+    /**
+     * Captures the stack trace for the check.
+     *
+     * <p>Must be called from the thread which made the check.</p>
+     */
+    public void captureCheckTrace() {
+        this.checkTrace = new Throwable();
+    }
+
     public String getCheckThread() {
         return this.checkThread;
     }
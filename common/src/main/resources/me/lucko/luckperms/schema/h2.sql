@@ -30,12 +30,14 @@ CREATE TABLE `{prefix}players` (
   `uuid`          VARCHAR(36) NOT NULL,
   `username`      VARCHAR(16) NOT NULL,
   `primary_group` VARCHAR(36) NOT NULL,
+  `version`       BIGINT      NOT NULL DEFAULT 0,
   PRIMARY KEY (`uuid`)
 );
 CREATE INDEX ON `{prefix}players` (`username`);
 
 CREATE TABLE `{prefix}groups` (
-  `name` VARCHAR(36) NOT NULL,
+  `name`    VARCHAR(36) NOT NULL,
+  `version` BIGINT      NOT NULL DEFAULT 0,
   PRIMARY KEY (`name`)
 );
 
@@ -50,9 +52,14 @@ CREATE TABLE `{prefix}actions` (
   `action`     VARCHAR(300)       NOT NULL,
   PRIMARY KEY (`id`)
 );
+CREATE INDEX ON `{prefix}actions` (`time`);
+CREATE INDEX ON `{prefix}actions` (`actor_uuid`, `time`);
+CREATE INDEX ON `{prefix}actions` (`acted_uuid`, `time`);
+CREATE INDEX ON `{prefix}actions` (`acted_name`, `time`);
 
 CREATE TABLE `{prefix}tracks` (
-  `name`   VARCHAR(36) NOT NULL,
-  `groups` TEXT        NOT NULL,
+  `name`    VARCHAR(36) NOT NULL,
+  `groups`  TEXT        NOT NULL,
+  `version` BIGINT      NOT NULL DEFAULT 0,
   PRIMARY KEY (`name`)
 );
@@ -44,6 +44,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 /**
@@ -77,6 +78,13 @@ public final class LuckPermsPermissionMap extends ForwardingMap<String, Permissi
     private final Map<String, Map<String, Boolean>> trueChildPermissions = LoadingMap.of(new ChildPermissionResolver(true));
     private final Map<String, Map<String, Boolean>> falseChildPermissions = LoadingMap.of(new ChildPermissionResolver(false));
 
+    // the source of versions, shared between all instances so that a map which replaces
+    // another (e.g. after being re-injected) never reuses one of its versions
+    private static final AtomicInteger VERSION_COUNTER = new AtomicInteger();
+
+    // changed whenever the cached child permissions are cleared
+    private volatile int version = VERSION_COUNTER.incrementAndGet();
+
     /**
      * The plugin instance
      */
@@ -91,9 +99,22 @@ public final class LuckPermsPermissionMap extends ForwardingMap<String, Permissi
         return value ? this.trueChildPermissions.get(permission) : this.falseChildPermissions.get(permission);
     }
 
+    /**
+     * Gets a version which changes each time the child permission
+     * relationships held by this map change.
+     *
+     * <p>Versions are unique across all instances.</p>
+     *
+     * @return the current version
+     */
+    public int getVersion() {
+        return this.version;
+    }
+
     private void update() {
         this.trueChildPermissions.clear();
         this.falseChildPermissions.clear();
+        this.version = VERSION_COUNTER.incrementAndGet();
         this.plugin.getUserManager().invalidateAllPermissionCalculators();
         this.plugin.getGroupManager().invalidateAllPermissionCalculators();
     }
@@ -43,9 +43,13 @@ import me.lucko.luckperms.sponge.calculator.FixedDefaultsProcessor;
 
 import net.luckperms.api.metastacking.DuplicateRemovalFunction;
 import net.luckperms.api.metastacking.MetaStackDefinition;
+import net.luckperms.api.model.data.DataType;
 import net.luckperms.api.node.ChatMetaType;
+import net.luckperms.api.node.Node;
 import net.luckperms.api.query.QueryOptions;
 
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 import java.util.Map;
 import java.util.function.IntFunction;
 
@@ -95,6 +99,17 @@ public class CalculatedSubjectCachedDataManager extends AbstractCachedDataManage
         this.subject.resolveAllOptions(accumulator, queryOptions);
     }
 
+    @Override
+    protected boolean isApplicable(DataType dataType, Node node, QueryOptions queryOptions) {
+        return true;
+    }
+
+    @Override
+    protected @Nullable Boolean resolveOwnPermission(String permission, QueryOptions queryOptions) {
+        // subject data isn't node based, always recalculate
+        return null;
+    }
+
     @Override
     public PermissionCalculator build(QueryOptions queryOptions, CacheMetadata metadata) {
         ImmutableList.Builder<PermissionProcessor> processors = ImmutableList.builder();